@@ -43,7 +43,7 @@ import java.util.concurrent.Executors;
  * Represents the mod configuration.
  *
  * @author LambdAurora
- * @version 4.8.0
+ * @version 4.10.0
  * @since 1.0.0
  */
 public class DynamicLightsConfig {
@@ -52,11 +52,15 @@ public class DynamicLightsConfig {
 	private static final ChunkRebuildSchedulerMode DEFAULT_CHUNK_REBUILD_SCHEDULER_MODE = ChunkRebuildSchedulerMode.CULLING;
 	private static final int DEFAULT_SLOW_TICKING_DISTANCE = 5;
 	private static final int DEFAULT_SLOWER_TICKING_DISTANCE = 8;
+	private static final double DEFAULT_TICK_BUDGET = 0.;
 	private static final boolean DEFAULT_ENTITIES_LIGHT_SOURCE = true;
 	private static final boolean DEFAULT_SELF_LIGHT_SOURCE = true;
 	private static final boolean DEFAULT_WATER_SENSITIVE_CHECK = true;
 	private static final ExplosiveLightingMode DEFAULT_CREEPER_LIGHTING_MODE = ExplosiveLightingMode.SIMPLE;
 	private static final ExplosiveLightingMode DEFAULT_TNT_LIGHTING_MODE = ExplosiveLightingMode.OFF;
+	private static final int DEFAULT_PARALLEL_BUILD_THRESHOLD = 4096;
+	private static final LightingBackend DEFAULT_LIGHTING_BACKEND = LightingBackend.SPATIAL_LOOKUP;
+	private static final int DEFAULT_LIGHT_BUDGET = 0;
 	private static final int DEFAULT_DEBUG_CELL_DISPLAY_RADIUS = 0;
 	private static final int DEFAULT_DEBUG_LIGHT_LEVEL_RADIUS = 0;
 
@@ -71,7 +75,9 @@ public class DynamicLightsConfig {
 	private ChunkRebuildSchedulerMode chunkRebuildSchedulerMode = DEFAULT_CHUNK_REBUILD_SCHEDULER_MODE;
 	private int slowTickingDistance;
 	private int slowerTickingDistance;
+	private double tickBudget;
 	private final BooleanSettingEntry backgroundAdaptiveTicking;
+	private final BooleanSettingEntry culledAdaptiveTicking;
 	private final List<SettingEntry<?>> settingEntries;
 	private final BooleanSettingEntry entitiesLightSource;
 	private final BooleanSettingEntry selfLightSource;
@@ -81,11 +87,17 @@ public class DynamicLightsConfig {
 	private final BooleanSettingEntry guardianLaser;
 	private final BooleanSettingEntry sonicBoomLighting;
 	private final BooleanSettingEntry glowingEffectLighting;
+	private final BooleanSettingEntry sectionLightGrid;
+	private final BooleanSettingEntry pipelinedBuild;
+	private final BooleanSettingEntry parallelLuminance;
 	private final BooleanSettingEntry debugActiveDynamicLightingCells;
 	private final BooleanSettingEntry debugDisplayDynamicLightingChunkRebuild;
 	private final BooleanSettingEntry debugDisplayHandlerBoundingBox;
 	private ExplosiveLightingMode creeperLightingMode = DEFAULT_CREEPER_LIGHTING_MODE;
 	private ExplosiveLightingMode tntLightingMode = DEFAULT_TNT_LIGHTING_MODE;
+	private int parallelBuildThreshold;
+	private LightingBackend lightingBackend = DEFAULT_LIGHTING_BACKEND;
+	private int lightBudget;
 	private int debugCellDisplayRadius;
 	private int debugLightLevelRadius;
 
@@ -108,6 +120,14 @@ public class DynamicLightsConfig {
 			)).build()
 	);
 
+	public final SpruceOption lightingBackendOption = new SpruceCyclingOption("lambdynlights.option.engine.backend",
+			amount -> this.setLightingBackend(this.lightingBackend.next()),
+			option -> option.getDisplayText(this.lightingBackend.getTranslatedText()),
+			TooltipData.builder().text(Component.translatable("lambdynlights.option.engine.backend.tooltip",
+					LightingBackend.SPATIAL_LOOKUP.getTranslatedText(), LightingBackend.CLIPMAP.getTranslatedText()
+			)).build()
+	);
+
 	public final AdaptiveTickingOption slowTickingOption = new AdaptiveTickingOption(
 			"slow",
 			() -> Mth.sqrt(this.slowTickingDistance) / 16.0,
@@ -148,6 +168,11 @@ public class DynamicLightsConfig {
 						.text(Component.translatable("lambdynlights.option.adaptive_ticking.background_sleep.tooltip"))
 						.build()
 		);
+		this.culledAdaptiveTicking = new BooleanSettingEntry("adaptive_ticking.culled_sleep", true, this.config,
+				TooltipData.builder()
+						.text(Component.translatable("lambdynlights.option.adaptive_ticking.culled_sleep.tooltip"))
+						.build()
+		);
 		this.entitiesLightSource = new BooleanSettingEntry("light_sources.entities", DEFAULT_ENTITIES_LIGHT_SOURCE, this.config,
 				TooltipData.builder().text(Component.translatable("lambdynlights.tooltip.entities")).build());
 		this.selfLightSource = new BooleanSettingEntry("light_sources.self", DEFAULT_SELF_LIGHT_SOURCE, this.config,
@@ -180,6 +205,18 @@ public class DynamicLightsConfig {
 				"light_sources.glowing_effect", true, this.config,
 				TooltipData.builder().text(Component.translatable("lambdynlights.option.light_sources.glowing_effect.tooltip")).build()
 		);
+		this.sectionLightGrid = new BooleanSettingEntry(
+				"engine.section_light_grid", true, this.config,
+				TooltipData.builder().text(Component.translatable("lambdynlights.option.engine.section_light_grid.tooltip")).build()
+		);
+		this.pipelinedBuild = new BooleanSettingEntry(
+				"engine.pipelined_build", false, this.config,
+				TooltipData.builder().text(Component.translatable("lambdynlights.option.engine.pipelined_build.tooltip")).build()
+		);
+		this.parallelLuminance = new BooleanSettingEntry(
+				"engine.parallel_luminance", false, this.config,
+				TooltipData.builder().text(Component.translatable("lambdynlights.option.engine.parallel_luminance.tooltip")).build()
+		);
 		this.debugActiveDynamicLightingCells = new BooleanSettingEntry(
 				"debug.active_dynamic_lighting_cells", false, this.config,
 				TooltipData.builder().text(Component.translatable("lambdynlights.option.debug.active_dynamic_lighting_cells.tooltip")).build()
@@ -198,6 +235,7 @@ public class DynamicLightsConfig {
 
 		this.settingEntries = List.of(
 				this.backgroundAdaptiveTicking,
+				this.culledAdaptiveTicking,
 				this.entitiesLightSource,
 				this.selfLightSource,
 				this.waterSensitiveCheck,
@@ -206,6 +244,9 @@ public class DynamicLightsConfig {
 				this.guardianLaser,
 				this.sonicBoomLighting,
 				this.glowingEffectLighting,
+				this.sectionLightGrid,
+				this.pipelinedBuild,
+				this.parallelLuminance,
 				this.debugActiveDynamicLightingCells,
 				this.debugDisplayDynamicLightingChunkRebuild,
 				this.debugDisplayHandlerBoundingBox
@@ -232,11 +273,16 @@ public class DynamicLightsConfig {
 				.orElse(DEFAULT_CHUNK_REBUILD_SCHEDULER_MODE);
 		this.setSlowTickingChunks(config.getIntOrElse("adaptive_ticking.slow", DEFAULT_SLOW_TICKING_DISTANCE), false);
 		this.setSlowerTickingChunks(config.getIntOrElse("adaptive_ticking.slower", DEFAULT_SLOWER_TICKING_DISTANCE), false);
+		this.tickBudget = this.config.<Number>getOrElse("adaptive_ticking.tick_budget", DEFAULT_TICK_BUDGET).doubleValue();
 		this.settingEntries.forEach(entry -> entry.load(this.config));
 		this.creeperLightingMode = ExplosiveLightingMode.byId(this.config.getOrElse("light_sources.creeper", DEFAULT_CREEPER_LIGHTING_MODE.getName()))
 				.orElse(DEFAULT_CREEPER_LIGHTING_MODE);
 		this.tntLightingMode = ExplosiveLightingMode.byId(this.config.getOrElse("light_sources.tnt", DEFAULT_TNT_LIGHTING_MODE.getName()))
 				.orElse(DEFAULT_TNT_LIGHTING_MODE);
+		this.parallelBuildThreshold = this.config.getIntOrElse("engine.parallel_build_threshold", DEFAULT_PARALLEL_BUILD_THRESHOLD);
+		this.lightingBackend = LightingBackend.byId(this.config.getOrElse("engine.backend", DEFAULT_LIGHTING_BACKEND.getName()))
+				.orElse(DEFAULT_LIGHTING_BACKEND);
+		this.lightBudget = this.config.getIntOrElse("engine.light_budget", DEFAULT_LIGHT_BUDGET);
 		this.debugCellDisplayRadius = this.config.getOrElse("debug.cell_display_radius", DEFAULT_DEBUG_CELL_DISPLAY_RADIUS);
 		this.debugLightLevelRadius = this.config.getOrElse("debug.light_level_radius", DEFAULT_DEBUG_LIGHT_LEVEL_RADIUS);
 
@@ -304,7 +350,11 @@ public class DynamicLightsConfig {
 	 * Queues the saving of the configuration.
 	 */
 	public void save() {
-		this.maybeSerialize().ifPresent(data -> SAVE_EXECUTOR.execute(() -> this.doSave(data)));
+		this.maybeSerialize().ifPresent(data -> {
+			// The changed settings may change the luminance of the entities.
+			this.mod.invalidateLuminance();
+			SAVE_EXECUTOR.execute(() -> this.doSave(data));
+		});
 	}
 
 	private String serialize() {
@@ -346,9 +396,13 @@ public class DynamicLightsConfig {
 		this.setChunkRebuildSchedulerMode(DEFAULT_CHUNK_REBUILD_SCHEDULER_MODE);
 		this.setSlowTickingChunks(DEFAULT_SLOW_TICKING_DISTANCE, true);
 		this.setSlowerTickingChunks(DEFAULT_SLOWER_TICKING_DISTANCE, true);
+		this.setTickBudget(DEFAULT_TICK_BUDGET);
 		this.settingEntries.forEach(SettingEntry::reset);
 		this.setCreeperLightingMode(DEFAULT_CREEPER_LIGHTING_MODE);
 		this.setTntLightingMode(DEFAULT_TNT_LIGHTING_MODE);
+		this.setParallelBuildThreshold(DEFAULT_PARALLEL_BUILD_THRESHOLD);
+		this.setLightingBackend(DEFAULT_LIGHTING_BACKEND);
+		this.setLightBudget(DEFAULT_LIGHT_BUDGET);
 		this.setDebugCellDisplayRadius(DEFAULT_DEBUG_CELL_DISPLAY_RADIUS);
 		this.setDebugLightLevelRadius(DEFAULT_DEBUG_LIGHT_LEVEL_RADIUS);
 	}
@@ -401,6 +455,25 @@ public class DynamicLightsConfig {
 		return this.slowerTickingDistance;
 	}
 
+	/**
+	 * {@return the time in milliseconds dynamic lighting may take each tick, or {@code 0} if the governor is disabled}
+	 *
+	 * @see dev.lambdaurora.lambdynlights.engine.TickBudgetGovernor
+	 */
+	public double getTickBudget() {
+		return this.tickBudget;
+	}
+
+	/**
+	 * Sets the time in milliseconds dynamic lighting may take each tick.
+	 *
+	 * @param tickBudget the time in milliseconds, or {@code 0} to disable the governor
+	 */
+	public void setTickBudget(double tickBudget) {
+		this.tickBudget = Math.max(0., tickBudget);
+		this.config.set("adaptive_ticking.tick_budget", this.tickBudget);
+	}
+
 	private void setSlowTickingChunks(int chunks, boolean save) {
 		this.slowTickingDistance = Mth.square(chunks * 16);
 
@@ -424,6 +497,31 @@ public class DynamicLightsConfig {
 		return this.backgroundAdaptiveTicking;
 	}
 
+	public BooleanSettingEntry getCulledAdaptiveTicking() {
+		return this.culledAdaptiveTicking;
+	}
+
+	/**
+	 * {@return the section light grid setting holder}
+	 */
+	public BooleanSettingEntry getSectionLightGrid() {
+		return this.sectionLightGrid;
+	}
+
+	/**
+	 * {@return the pipelined spatial lookup build setting holder}
+	 */
+	public BooleanSettingEntry getPipelinedBuild() {
+		return this.pipelinedBuild;
+	}
+
+	/**
+	 * {@return the parallel luminance evaluation setting holder}
+	 */
+	public BooleanSettingEntry getParallelLuminance() {
+		return this.parallelLuminance;
+	}
+
 	/**
 	 * {@return the entities as light source setting holder}
 	 */
@@ -518,6 +616,57 @@ public class DynamicLightsConfig {
 		return this.glowingEffectLighting;
 	}
 
+	/**
+	 * {@return the number of light sources from which the spatial lookup is built in parallel, or {@code 0} if it is never built in parallel}
+	 */
+	public int getParallelBuildThreshold() {
+		return this.parallelBuildThreshold;
+	}
+
+	/**
+	 * Sets the number of light sources from which the spatial lookup is built in parallel.
+	 *
+	 * @param parallelBuildThreshold the number of light sources, or {@code 0} to never build in parallel
+	 */
+	public void setParallelBuildThreshold(int parallelBuildThreshold) {
+		this.parallelBuildThreshold = Math.max(0, parallelBuildThreshold);
+		this.config.set("engine.parallel_build_threshold", this.parallelBuildThreshold);
+	}
+
+	/**
+	 * {@return the backend answering the dynamic light level queries}
+	 */
+	public LightingBackend getLightingBackend() {
+		return this.lightingBackend;
+	}
+
+	/**
+	 * Sets the backend answering the dynamic light level queries.
+	 *
+	 * @param backend the lighting backend
+	 */
+	public void setLightingBackend(LightingBackend backend) {
+		this.lightingBackend = backend;
+		this.config.set("engine.backend", backend.getName());
+	}
+
+	/**
+	 * {@return the maximum number of active light sources, or {@code 0} if there is no limit}
+	 */
+	public int getLightBudget() {
+		return this.lightBudget;
+	}
+
+	/**
+	 * Sets the maximum number of active light sources.
+	 *
+	 * @param lightBudget the maximum number of active light sources, or {@code 0} for no limit
+	 */
+	public void setLightBudget(int lightBudget) {
+		this.lightBudget = Math.max(0, lightBudget);
+		this.config.set("engine.light_budget", this.lightBudget);
+	}
+
 	/**
 	 * {@return the active dynamic lighting cells debug setting holder}
 	 */
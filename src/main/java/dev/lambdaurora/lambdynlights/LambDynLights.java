@@ -10,6 +10,7 @@
 package dev.lambdaurora.lambdynlights;
 
 import com.mojang.blaze3d.platform.InputConstants;
+import dev.lambdaurora.lambdynlights.accessor.LuminanceCacheHolder;
 import dev.lambdaurora.lambdynlights.api.DynamicLightsContext;
 import dev.lambdaurora.lambdynlights.api.DynamicLightsInitializer;
 import dev.lambdaurora.lambdynlights.api.behavior.DynamicLightBehavior;
@@ -19,10 +20,16 @@ import dev.lambdaurora.lambdynlights.api.item.ItemLightSourceManager;
 import dev.lambdaurora.lambdynlights.compat.CompatLayer;
 import dev.lambdaurora.lambdynlights.engine.DynamicLightBehaviorSources;
 import dev.lambdaurora.lambdynlights.engine.DynamicLightingEngine;
+import dev.lambdaurora.lambdynlights.engine.LightBudget;
+import dev.lambdaurora.lambdynlights.engine.TickBudgetGovernor;
 import dev.lambdaurora.lambdynlights.engine.TickMode;
+import dev.lambdaurora.lambdynlights.engine.TickModeClassifier;
+import dev.lambdaurora.lambdynlights.engine.TickWheel;
 import dev.lambdaurora.lambdynlights.engine.scheduler.ChunkRebuildScheduler;
 import dev.lambdaurora.lambdynlights.engine.source.DeferredDynamicLightSource;
 import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSource;
+import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSourceClusters;
+import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSourceRegistry;
 import dev.lambdaurora.lambdynlights.engine.source.EntityDynamicLightSource;
 import dev.lambdaurora.lambdynlights.engine.source.EntityDynamicLightSourceBehavior;
 import dev.lambdaurora.lambdynlights.platform.Platform;
@@ -36,6 +43,7 @@ import dev.yumi.mc.core.api.ModContainer;
 import dev.yumi.mc.core.api.YumiMods;
 import dev.yumi.mc.core.api.entrypoint.EntrypointContainer;
 import dev.yumi.mc.core.api.entrypoint.client.ClientModInitializer;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.KeyMapping;
 import net.minecraft.client.Minecraft;
@@ -53,21 +61,23 @@ import net.minecraft.util.profiling.Profiler;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EquipmentSlot;
 import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.BlockAndLightGetter;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Unmodifiable;
-import org.joml.Vector3f;
 import org.jspecify.annotations.Nullable;
 import org.lwjgl.glfw.GLFW;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 /**
  * Represents the LambDynamicLights mod.
@@ -79,6 +89,15 @@ import java.util.function.Predicate;
 @ApiStatus.Internal
 public class LambDynLights implements ClientModInitializer, DynamicLightsContext {
 	private static final Logger LOGGER = LoggerFactory.getLogger("LambDynamicLights");
+	/**
+	 * The number of entities whose luminance is evaluated by a worker at once.
+	 */
+	private static final int LUMINANCE_EVALUATION_BATCH = 64;
+	/**
+	 * The number of ticks after which the cached luminance of an entity is evaluated again without any invalidation,
+	 * as some light source predicates depend on the world, like the weather.
+	 */
+	public static final int LUMINANCE_REFRESH_INTERVAL = 20;
 	public static final LambDynLights INSTANCE = new LambDynLights();
 
 	public static final KeyMapping TOGGLE_FPS_DYNAMIC_LIGHTING = new KeyMapping(
@@ -96,10 +115,31 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 			= new EntityLightSources(this.itemLightSources, lightSourceApplicationPredicate);
 	private final DynamicLightBehaviorSources dynamicLightBehaviorSources = new DynamicLightBehaviorSources(this);
 	public final DynamicLightingEngine engine = new DynamicLightingEngine(this.config);
-	private final Set<DynamicLightSource> dynamicLightSources = new HashSet<>();
-	private final Set<DynamicLightSource> toAdd = new HashSet<>();
+	private final DynamicLightSourceRegistry dynamicLightSources = new DynamicLightSourceRegistry();
+	private final TickBudgetGovernor governor = new TickBudgetGovernor(this.config);
+	private final TickModeClassifier tickModeClassifier = new TickModeClassifier(this.config, this.governor);
+	private final TickWheel tickWheel = new TickWheel(this.dynamicLightSources, this::getTickMode);
 	private final List<DynamicLightSource> toClear = new ArrayList<>();
-	private final ReentrantReadWriteLock lightSourcesLock = new ReentrantReadWriteLock();
+	/**
+	 * The entities ticked during the current tick whose luminance is evaluated in parallel at the end of the tick.
+	 */
+	private final ObjectArrayList<EntityDynamicLightSourceBehavior> pendingLuminanceEvaluations = new ObjectArrayList<>();
+	private final ObjectArrayList<EntityDynamicLightSourceBehavior> parallelLuminanceEvaluations = new ObjectArrayList<>();
+	/**
+	 * The inputs of the cached luminance captured on the main thread for each parallel evaluation,
+	 * the luminance is {@code -1} if the cache is up to date.
+	 */
+	private int[] capturedLuminances = new int[0];
+	private boolean[] capturedSubmergedInFluid = new boolean[0];
+	private ItemStack[] capturedEquipment = new ItemStack[0];
+	/**
+	 * The light sources which are paused as they are past the light budget.
+	 */
+	private final Set<DynamicLightSource> parkedLightSources = new HashSet<>();
+	private DynamicLightSource[] budgetCandidates = new DynamicLightSource[0];
+	private float[] budgetScores = new float[0];
+	private final DynamicLightSourceClusters lightSourceClusters
+			= new DynamicLightSourceClusters(this::addLightSource, this::removeLightSource);
 
 	private final DynamicLightDebugRenderer.SectionRebuild sectionRebuildDebugRenderer
 			= new DynamicLightDebugRenderer.SectionRebuild(this);
@@ -113,6 +153,7 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 	private @Nullable ChunkRebuildScheduler chunkRebuildScheduler;
 
 	private int tick = 0;
+	private int luminanceGeneration = 0;
 	private TickMode minimumTickMode = TickMode.REAL_TIME;
 	private boolean disableTicking = false;
 	boolean shouldForceRefresh = false;
@@ -134,6 +175,8 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 			);
 			category.setDetail("Mode", this.config.getDynamicLightsMode().getName());
 			category.setDetail("Dynamic Light Sources", this.dynamicLightSourcesCount);
+			category.setDetail("Clustered Light Sources", this.lightSourceClusters.getMemberCount());
+			category.setDetail("Light Budget", this.getLightBudgetOccupancy());
 			category.setDetail(
 					"Spatial Hash Occupancy",
 					"%d / %d".formatted(this.engine.getLastEntryCount(), this.engine.getSize())
@@ -196,6 +239,34 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 		return this.dynamicLightBehaviorSources;
 	}
 
+	/**
+	 * {@return the governor keeping dynamic lighting within its time budget}
+	 */
+	public TickBudgetGovernor getGovernor() {
+		return this.governor;
+	}
+
+	/**
+	 * {@return the current dynamic lighting tick}
+	 */
+	public int getTick() {
+		return this.tick;
+	}
+
+	/**
+	 * {@return the generation of the cached luminance of the entities, a cached luminance from another generation is stale}
+	 */
+	public int getLuminanceGeneration() {
+		return this.luminanceGeneration;
+	}
+
+	/**
+	 * Invalidates the cached luminance of every entity, for example when the light sources are reloaded.
+	 */
+	public void invalidateLuminance() {
+		this.luminanceGeneration++;
+	}
+
 	/**
 	 * {@return {@code true} if dynamic lighting should tick, or {@code false} otherwise}
 	 *
@@ -204,13 +275,10 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 	public boolean shouldTick(EntityDynamicLightSource entity) {
 		if (this.disableTicking) return false;
 
-		var effectiveMode = this.minimumTickMode.min(
-				this.getBaseTickMode(
-						entity.getDynamicLightX(),
-						entity.getDynamicLightY(),
-						entity.getDynamicLightZ()
-				)
-		);
+		// Tracked light sources are scheduled by the tick wheel.
+		if (this.dynamicLightSources.contains(entity)) return this.tickWheel.isDue(entity, this.tick);
+
+		var effectiveMode = this.getUntrackedTickMode(entity);
 
 		// Early return for performance reasons
 		if (effectiveMode == TickMode.REAL_TIME) return true;
@@ -226,10 +294,10 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 	public boolean shouldTick(DeferredDynamicLightSource source) {
 		if (this.disableTicking) return false;
 
-		var effectiveMode = this.minimumTickMode.min(
-				BoundingBoxUtils.forAllPoints(source.behavior().getBoundingBox(), this::getBaseTickMode)
-						.stream().reduce(TickMode.BACKGROUND, TickMode::max)
-		);
+		// Tracked light sources are scheduled by the tick wheel.
+		if (this.dynamicLightSources.contains(source)) return this.tickWheel.isDue(source, this.tick);
+
+		var effectiveMode = this.getUntrackedTickMode(source);
 
 		// Early return for performance reasons
 		if (effectiveMode == TickMode.REAL_TIME) return true;
@@ -237,38 +305,25 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 		return this.tick % effectiveMode.delay() == source.getDynamicLightId() % effectiveMode.delay();
 	}
 
-	private TickMode getBaseTickMode(double x, double y, double z) {
-		var mode = TickMode.REAL_TIME;
-
-		// If the entity is far behind the camera, we greatly slow it down.
-		var camera = Minecraft.getInstance().gameRenderer.getMainCamera();
-		var planeNormal = camera.forwardVector();
-		var planeOrigin = camera.position();
-
-		var planeOriginToEntity = new Vector3f(
-				(float) (x - planeOrigin.x),
-				(float) (y - planeOrigin.y),
-				(float) (z - planeOrigin.z)
-		);
-		var signedDistance = planeNormal.dot(planeOriginToEntity);
-
-		if (this.config.getBackgroundAdaptiveTicking().get() && signedDistance < -DynamicLightingEngine.MAX_RADIUS - 1) {
-			mode = TickMode.BACKGROUND;
-		}
-		// If the entity is too far away, we slow it down.
-		else {
-			float dX = (float) (camera.position().x - x);
-			float dY = (float) (camera.position().y - y);
-			float dZ = (float) (camera.position().z - z);
-			float squaredDist = dX * dX + dY * dY + dZ * dZ;
-			if (squaredDist > this.config.getSlowerTickingDistance()) {
-				mode = TickMode.SLOWER;
-			} else if (squaredDist > this.config.getSlowTickingDistance()) {
-				mode = TickMode.SLOW;
-			}
-		}
+	/**
+	 * {@return the effective tick mode of the given light source}
+	 *
+	 * @param lightSource the light source
+	 */
+	private TickMode getTickMode(DynamicLightSource lightSource) {
+		return this.minimumTickMode.min(this.tickModeClassifier.classify(lightSource, true));
+	}
 
-		return mode;
+	/**
+	 * {@return the tick mode of the given light source which is not tracked}
+	 * <p>
+	 * Untracked light sources light up nothing, so culling them would cost more than it saves,
+	 * unless they are parked past the light budget.
+	 *
+	 * @param lightSource the untracked light source
+	 */
+	private TickMode getUntrackedTickMode(DynamicLightSource lightSource) {
+		return this.minimumTickMode.min(this.tickModeClassifier.classify(lightSource, this.parkedLightSources.contains(lightSource)));
 	}
 
 	private void registerDebugEntries() {
@@ -290,7 +345,9 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 							.append('/')
 							.append(this.engine.getSize())
 							.append(" ; Updated: ")
-							.append(sourceUpdatedLastTick);
+							.append(sourceUpdatedLastTick)
+							.append(" ; Clustered: ")
+							.append(this.lightSourceClusters.getMemberCount());
 
 					if (!this.config.getDynamicLightsMode().isEnabled()) {
 						builder.append(" ; ");
@@ -301,13 +358,71 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 
 					builder.append(')');
 					displayer.addToGroup(debugGroup, builder.toString());
+
+					int culled = 0;
+					for (int slot = 0; slot < this.dynamicLightSources.size(); slot++) {
+						if (this.dynamicLightSources.getTickMode(slot) == TickMode.CULLED) culled++;
+					}
+
+					displayer.addToGroup(debugGroup, debugPrefix + "Tick Wheel: %d due | %d faster, %d slower | %d culled".formatted(
+							this.tickWheel.getLastDueCount(),
+							this.tickWheel.getLastFasterCount(),
+							this.tickWheel.getLastSlowerCount(),
+							culled
+					));
+
+					if (this.governor.isEnabled()) {
+						displayer.addToGroup(debugGroup, debugPrefix + "Tick Budget Governor: %.3fms / %.3fms | Level %d/%d"
+								.formatted(
+										this.governor.getAverageTime(),
+										this.config.getTickBudget(),
+										this.governor.getLevel(),
+										TickBudgetGovernor.MAX_LEVEL
+								)
+						);
+					}
+
+					if (this.config.getLightBudget() > 0) {
+						displayer.addToGroup(debugGroup, debugPrefix + "Light Budget: " + this.getLightBudgetOccupancy());
+					}
 				}
 		);
 		DebugScreenEntries.register(
 				id("spatial_lookup"),
 				(displayer, level, clientChunk, serverChunk) -> {
-					displayer.addToGroup(debugGroup, debugPrefix + "Compute Spatial Lookup Timing: %.3fms (avg. 40t)"
-							.formatted(this.engine.getComputeSpatialLookupTime() / 1_000_000.f));
+					displayer.addToGroup(debugGroup, debugPrefix + "Compute Spatial Lookup Timing: %.3fms (avg. 40t) | %.2fM entries/s | %d workers"
+							.formatted(
+									this.engine.getComputeSpatialLookupTime() / 1_000_000.f,
+									this.engine.getComputeSpatialLookupThroughput() / 1_000_000.f,
+									this.engine.getLastBuildWorkers()
+							));
+					displayer.addToGroup(debugGroup, debugPrefix + "Spatial Lookup Update: %s (%d overflow entries)"
+							.formatted(
+									this.engine.wasLastComputeIncremental() ? "incremental" : "full",
+									this.engine.getOverflowEntryCount()
+							));
+
+					long hits = this.engine.getQueryCacheHits();
+					long misses = this.engine.getQueryCacheMisses();
+					displayer.addToGroup(debugGroup, debugPrefix + "Light Query Cache: %d hits / %d misses (%.1f%% hit rate)"
+							.formatted(hits, misses, hits + misses == 0 ? 0.f : hits * 100.f / (hits + misses)));
+
+					var snapshot = this.engine.getSnapshot();
+					displayer.addToGroup(debugGroup, debugPrefix + "Spatial Lookup Cells: %d / %d (load %.2f) | Probe Length: %.2f avg. %d max"
+							.formatted(
+									snapshot.cellCount(), snapshot.capacity(), snapshot.loadFactor(),
+									snapshot.averageProbeLength(), snapshot.maxProbeLength()
+							));
+					displayer.addToGroup(debugGroup, debugPrefix + "Lit Sections: %d | Large Behaviors: %d".formatted(
+							snapshot.litSectionCount(), snapshot.largeBehaviorCount()
+					));
+
+					var clipmap = this.engine.getClipmap();
+					if (clipmap != null) {
+						displayer.addToGroup(debugGroup, debugPrefix + "Light Clipmap: %d sources | %d voxels recomputed".formatted(
+								clipmap.getSplattedSourceCount(), clipmap.getLastRecomputedVoxels()
+						));
+					}
 				}
 		);
 		DebugScreenEntries.register(
@@ -342,29 +457,41 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 		var mode = this.config.getDynamicLightsMode();
 
 		this.disableTicking = !mode.isEnabled();
-		this.minimumTickMode = mode.tickMode();
-
 		this.tick += 1;
+		this.tickModeClassifier.startTick(Minecraft.getInstance());
+
+		var minimumTickMode = mode.tickMode().min(this.governor.getMinimumTickMode());
+		if (this.minimumTickMode != minimumTickMode) {
+			this.minimumTickMode = minimumTickMode;
+			this.tickWheel.rescheduleAll(this.tick);
+		} else {
+			this.tickWheel.advance(this.tick);
+		}
 	}
 
 	public void onEndLevelTick() {
 		assert this.chunkRebuildScheduler != null;
+		long startTime = System.nanoTime();
+		this.chunkRebuildScheduler.setRebuildLimit(this.governor.getRebuildLimit());
 		this.chunkRebuildScheduler.startTick();
 
-		this.lightSourcesLock.writeLock().lock();
-		if (this.config.getDynamicLightsMode().isEnabled()) {
-			Profiler.get().push("dynamic_lighting_compute_spatial_lookup");
-			this.engine.computeSpatialLookup(this.dynamicLightSources);
-			Profiler.get().pop();
+		// Light sources may start or stop being tracked depending on their luminance.
+		this.evaluatePendingLuminance();
+
+		if (!this.disableTicking) {
+			this.applyLightBudget();
 		}
+
 		this.toClear.forEach(this.chunkRebuildScheduler::remove);
+		this.toClear.forEach(this.engine::markDirty);
 		this.toClear.clear();
-		this.lightSourcesLock.writeLock().unlock();
 
 		if (!this.disableTicking || this.shouldForceRefresh) {
-			var it = this.dynamicLightSources.iterator();
-			while (it.hasNext()) {
-				var lightSource = it.next();
+			// Clusters may be added or removed, which cannot happen while iterating the light sources.
+			this.lightSourceClusters.update(this::addLightSource);
+
+			for (int slot = 0; slot < this.dynamicLightSources.size(); slot++) {
+				var lightSource = this.dynamicLightSources.get(slot);
 
 				// In case of light sources controlled by a DynamicLightBehavior, they might require polling to be removed.
 				if (lightSource instanceof DeferredDynamicLightSource deferred) {
@@ -372,7 +499,10 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 
 					if (behavior.isRemoved()) {
 						this.toClear.add(lightSource);
-						it.remove();
+						this.engine.markDirty(lightSource);
+						this.dynamicLightBehaviorSources.forget(behavior);
+						// The last light source takes this slot, it has to be visited again.
+						this.dynamicLightSources.removeAt(slot--);
 						continue;
 					}
 				}
@@ -380,16 +510,32 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 				if (lightSource instanceof EntityDynamicLightSource entity && !this.shouldTick(entity)) continue;
 				if (lightSource instanceof DeferredDynamicLightSource deferred && !this.shouldTick(deferred)) continue;
 
-				var chunks = lightSource.getDynamicLightChunksToRebuild(this.shouldForceRefresh || this.toAdd.contains(lightSource));
+				var chunks = lightSource.getDynamicLightChunksToRebuild(this.shouldForceRefresh || this.dynamicLightSources.isNew(slot));
+				if (!chunks.isEmpty()) {
+					// The light source moved or its luminance changed, its entries in the spatial lookup need to be updated.
+					this.engine.markDirty(lightSource);
+				}
 				this.chunkRebuildScheduler.update(lightSource, chunks);
 			}
 
-			this.toAdd.clear();
+			this.dynamicLightSources.clearNew();
+		}
+
+		// The computed spatial lookup is published as an immutable snapshot, meshing threads never observe it mid-update.
+		if (this.config.getDynamicLightsMode().isEnabled()) {
+			Profiler.get().push("dynamic_lighting_compute_spatial_lookup");
+			this.engine.computeSpatialLookup(this.dynamicLightSources, this.shouldForceRefresh);
+			Profiler.get().pop();
+		} else {
+			this.engine.invalidate();
 		}
 		this.dynamicLightSourcesCount = this.dynamicLightSources.size();
 
 		this.chunkRebuildScheduler.endTick();
+		// The rebuilds deferred in pipelined mode are scheduled once their snapshot is published, before the next frame meshes.
+		this.engine.flushChunkRebuilds(this.chunkRebuildScheduler::rebuildChunk);
 		this.sectionRebuildDebugRenderer.tick();
+		this.governor.endTick(System.nanoTime() - startTime);
 
 		this.shouldForceRefresh = false;
 	}
@@ -419,10 +565,33 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 	 * @return the modified lightmap coordinates
 	 */
 	public int getLightmapWithDynamicLight(BlockAndLightGetter level, BlockPos pos, int lightmap) {
-		if (!(level instanceof ClientLevel)) this.lightSourcesLock.readLock().lock();
-		double light = this.getDynamicLightLevel(pos);
-		if (!(level instanceof ClientLevel)) this.lightSourcesLock.readLock().unlock();
-		return this.getLightmapWithDynamicLight(light, lightmap);
+		// No locking is needed as the engine queries an immutable snapshot of the spatial lookup.
+		int light;
+		if (!(level instanceof ClientLevel) && this.config.getSectionLightGrid().get()) {
+			// Chunk meshing queries every block of the section.
+			light = this.engine.getSectionDynamicLightmapLevel(pos.getX(), pos.getY(), pos.getZ());
+		} else {
+			light = this.engine.getDynamicLightmapLevel(pos.getX(), pos.getY(), pos.getZ());
+		}
+		return this.applyDynamicLightmapLevel(light, lightmap);
+	}
+
+	/**
+	 * Returns the lightmap with combined light levels.
+	 *
+	 * @param dynamicLightmapLevel the dynamic light level in sixteenths of a light level, from {@code 0} to {@code 240}
+	 * @param lightmap the vanilla lightmap coordinates
+	 * @return the modified lightmap coordinates
+	 * @see dev.lambdaurora.lambdynlights.engine.LightFalloff
+	 */
+	public int applyDynamicLightmapLevel(int dynamicLightmapLevel, int lightmap) {
+		// lightmap is (skyLevel << 20 | blockLevel << 4), the dynamic light level is already in the same unit as the block level.
+		if (dynamicLightmapLevel > LightCoordsUtil.block(lightmap) << 4) {
+			lightmap &= 0xfff00000;
+			lightmap |= dynamicLightmapLevel & 0x000fffff;
+		}
+
+		return lightmap;
 	}
 
 	/**
@@ -467,8 +636,255 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 	public void addLightSource(DynamicLightSource lightSource) {
 		if (this.containsLightSource(lightSource))
 			return;
+		if (this.lightSourceClusters.add(lightSource))
+			return;
 		this.dynamicLightSources.add(lightSource);
-		this.toAdd.add(lightSource);
+		this.tickWheel.schedule(lightSource, this.tick);
+		this.engine.markDirty(lightSource);
+	}
+
+	/**
+	 * Defers the evaluation of the luminance of the given entity to the end of the tick if parallel luminance evaluation is enabled.
+	 *
+	 * @param lightSource the ticked entity
+	 * @return {@code true} if the evaluation has been deferred, or {@code false} if it must be done immediately
+	 */
+	public boolean deferLuminanceEvaluation(EntityDynamicLightSourceBehavior lightSource) {
+		if (!this.config.getParallelLuminance().get()) return false;
+
+		this.pendingLuminanceEvaluations.add(lightSource);
+		return true;
+	}
+
+	/**
+	 * Evaluates the luminance of the entities ticked during this tick in parallel batches, then updates their tracking.
+	 * <p>
+	 * The entities have all been ticked, and the main thread waits for the evaluation,
+	 * so the workers read the final state of the entities for this tick which nothing modifies meanwhile.
+	 * Each worker only writes the luminance of the entities of its own batch.
+	 * <p>
+	 * What may read anything else than the state of the entity is captured beforehand on the main thread:
+	 * <ul>
+	 *     <li>{@link DynamicLightingEngine#canLightUp(Entity)}, which reads the local player;</li>
+	 *     <li>the fluid at the eyes of the living entities for the water-sensitive check, and their equipped item stacks;</li>
+	 *     <li>the entity light sources and the {@linkplain CompatLayer compatibility layers},
+	 *     whose predicates may read the level;</li>
+	 *     <li>the evaluation of the players, which reads the local player and the level of the player.</li>
+	 * </ul>
+	 * The workers then match the captured item stacks against the item light sources, which is the bulk of the work,
+	 * and cache the result before ticking the entity.
+	 * They may still read the settings, which are only modified on the main thread.
+	 */
+	private void evaluatePendingLuminance() {
+		var pending = this.pendingLuminanceEvaluations;
+		if (pending.isEmpty()) return;
+
+		this.ensureCaptureCapacity(pending.size());
+
+		var parallel = this.parallelLuminanceEvaluations;
+		for (var lightSource : pending) {
+			var entity = (Entity) lightSource;
+
+			if (!DynamicLightingEngine.canLightUp(entity)) {
+				lightSource.setLuminance(0);
+			} else if (entity instanceof Player) {
+				lightSource.dynamicLightTick();
+			} else {
+				this.captureLuminanceInputs(entity, parallel.size());
+				parallel.add(lightSource);
+			}
+		}
+
+		int parallelCount = parallel.size();
+		if (parallelCount < LUMINANCE_EVALUATION_BATCH * 2) {
+			this.evaluateLuminance(0, parallelCount);
+		} else {
+			int batches = Math.ceilDiv(parallelCount, LUMINANCE_EVALUATION_BATCH);
+
+			IntStream.range(0, batches).parallel().forEach(batch -> this.evaluateLuminance(
+					batch * LUMINANCE_EVALUATION_BATCH,
+					Math.min(parallelCount, (batch + 1) * LUMINANCE_EVALUATION_BATCH)
+			));
+		}
+		parallel.clear();
+		// The captured stacks must not be retained past this tick.
+		Arrays.fill(this.capturedEquipment, 0, parallelCount * EquipmentSlot.VALUES.size(), null);
+
+		int count = pending.size();
+
+		// Tracking adds or removes light sources, which may only happen on the main thread.
+		for (int i = 0; i < count; i++) {
+			var lightSource = pending.get(i);
+
+			// The entity may have been removed from its level after it ticked.
+			if (!((Entity) lightSource).isRemoved()) {
+				updateTracking(lightSource);
+			}
+		}
+
+		pending.clear();
+	}
+
+	private void ensureCaptureCapacity(int count) {
+		if (this.capturedLuminances.length < count) {
+			int capacity = Math.max(count, this.capturedLuminances.length * 2);
+
+			this.capturedLuminances = new int[capacity];
+			this.capturedSubmergedInFluid = new boolean[capacity];
+			this.capturedEquipment = new ItemStack[capacity * EquipmentSlot.VALUES.size()];
+		}
+	}
+
+	/**
+	 * Captures the inputs of the cached luminance of the given entity if it is stale.
+	 * <p>
+	 * Non-living entities only derive their luminance from the entity light sources, which are evaluated right away.
+	 * Living entities have the part which may read the level evaluated right away,
+	 * and their equipment captured to be matched by the workers.
+	 *
+	 * @param entity the entity
+	 * @param index the index of the parallel evaluation
+	 */
+	private void captureLuminanceInputs(Entity entity, int index) {
+		var holder = (LuminanceCacheHolder) entity;
+
+		if (!holder.lambdynlights$isLuminanceStale()) {
+			this.capturedLuminances[index] = -1;
+		} else if (entity instanceof LivingEntity livingEntity) {
+			boolean submergedInFluid = isEyeSubmergedInFluid(livingEntity);
+			int slot = index * EquipmentSlot.VALUES.size();
+
+			for (var equipmentSlot : EquipmentSlot.VALUES) {
+				this.capturedEquipment[slot++] = livingEntity.getItemBySlot(equipmentSlot);
+			}
+
+			this.capturedLuminances[index] = Math.max(
+					getLuminanceFrom(livingEntity),
+					getCompatLuminanceFromItems(livingEntity, submergedInFluid, 0)
+			);
+			this.capturedSubmergedInFluid[index] = submergedInFluid;
+		} else {
+			holder.lambdynlights$getCachedLuminance();
+			this.capturedLuminances[index] = -1;
+		}
+	}
+
+	private void evaluateLuminance(int start, int end) {
+		var entities = this.parallelLuminanceEvaluations;
+		int slots = EquipmentSlot.VALUES.size();
+
+		for (int i = start; i < end; i++) {
+			var lightSource = entities.get(i);
+			int luminance = this.capturedLuminances[i];
+
+			if (luminance != -1) {
+				for (int slot = i * slots, last = slot + slots; slot < last && luminance < 15; slot++) {
+					var equipped = this.capturedEquipment[slot];
+
+					if (!equipped.isEmpty()) {
+						luminance = Math.max(luminance, this.itemLightSources.getLuminance(equipped, this.capturedSubmergedInFluid[i]));
+					}
+				}
+
+				((LuminanceCacheHolder) lightSource).lambdynlights$setCachedLuminance(luminance);
+			}
+
+			lightSource.dynamicLightTick();
+		}
+	}
+
+	/**
+	 * Parks the least important light sources past the light budget, and wakes up the parked light sources which rank back in.
+	 * <p>
+	 * The active light sources are favoured by {@link LightBudget#WAKE_MARGIN} to avoid thrashing near the cut.
+	 * <p>
+	 * Parked light sources are still tracked, but they do not light up anything:
+	 * their chunk sections are not computed, and they have no entries in the spatial lookup.
+	 *
+	 * @see LightBudget
+	 */
+	private void applyLightBudget() {
+		// Parked light sources are not polled by the tick loop.
+		this.parkedLightSources.removeIf(lightSource -> {
+			if (lightSource instanceof DeferredDynamicLightSource deferred && deferred.behavior().isRemoved()) {
+				this.dynamicLightBehaviorSources.forget(deferred.behavior());
+				return true;
+			}
+			return false;
+		});
+
+		int budget = this.config.getLightBudget();
+		int count = this.dynamicLightSources.size() + this.parkedLightSources.size();
+
+		if (budget <= 0 || count <= budget) {
+			this.parkedLightSources.forEach(this::wakeLightSource);
+			this.parkedLightSources.clear();
+			return;
+		}
+
+		if (this.budgetCandidates.length < count) {
+			this.budgetCandidates = new DynamicLightSource[count];
+			this.budgetScores = new float[count];
+		}
+
+		var candidates = this.budgetCandidates;
+		var scores = this.budgetScores;
+		var client = Minecraft.getInstance();
+		var camera = client.gameRenderer.getMainCamera();
+
+		int i = 0;
+		for (var lightSource : this.dynamicLightSources) candidates[i++] = lightSource;
+		int activeCount = i;
+		for (var lightSource : this.parkedLightSources) candidates[i++] = lightSource;
+
+		for (i = 0; i < count; i++) {
+			scores[i] = LightBudget.importance(candidates[i], camera, client.player);
+
+			if (i < activeCount) {
+				// Active light sources keep their place unless a parked light source is clearly more important.
+				scores[i] *= LightBudget.WAKE_MARGIN;
+			}
+		}
+
+		LightBudget.selectMostImportant(candidates, scores, count, budget);
+
+		for (i = 0; i < budget; i++) {
+			if (this.parkedLightSources.remove(candidates[i])) {
+				this.wakeLightSource(candidates[i]);
+			}
+		}
+
+		for (i = budget; i < count; i++) {
+			var lightSource = candidates[i];
+
+			if (this.dynamicLightSources.remove(lightSource)) {
+				this.parkedLightSources.add(lightSource);
+				// Clears the light of the light source like a removed light source.
+				this.toClear.add(lightSource);
+			}
+		}
+
+		// Do not keep the light sources alive.
+		Arrays.fill(candidates, 0, count, null);
+	}
+
+	private void wakeLightSource(DynamicLightSource lightSource) {
+		this.dynamicLightSources.add(lightSource);
+		this.tickWheel.schedule(lightSource, this.tick);
+		this.engine.markDirty(lightSource);
+	}
+
+	/**
+	 * {@return the occupancy of the light budget for display purposes}
+	 */
+	private String getLightBudgetOccupancy() {
+		int budget = this.config.getLightBudget();
+
+		if (budget <= 0) {
+			return "%d / unlimited".formatted(this.dynamicLightSources.size());
+		}
+
+		return "%d / %d (%d parked)".formatted(this.dynamicLightSources.size(), budget, this.parkedLightSources.size());
 	}
 
 	/**
@@ -478,7 +894,9 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 	 * @return {@code true} if the light source is tracked, else {@code false}
 	 */
 	public boolean containsLightSource(DynamicLightSource lightSource) {
-		return this.dynamicLightSources.contains(lightSource);
+		return this.dynamicLightSources.contains(lightSource)
+				|| this.parkedLightSources.contains(lightSource)
+				|| this.lightSourceClusters.contains(lightSource);
 	}
 
 	/**
@@ -495,16 +913,16 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 	 *
 	 * @param lightSource the light source to remove
 	 */
-	public void removeLightSource(EntityDynamicLightSourceBehavior lightSource) {
-		var chunkProviders = this.dynamicLightSources.iterator();
-		DynamicLightSource it;
-		while (chunkProviders.hasNext()) {
-			it = chunkProviders.next();
-			if (it.equals(lightSource)) {
-				chunkProviders.remove();
-				this.toClear.add(lightSource);
-				break;
-			}
+	public void removeLightSource(DynamicLightSource lightSource) {
+		if (this.lightSourceClusters.remove(lightSource))
+			return;
+		// A parked light source has already been cleared.
+		if (this.parkedLightSources.remove(lightSource))
+			return;
+
+		// The light source may be removed several times, for example an entity both removed from its level and discarded.
+		if (this.dynamicLightSources.remove(lightSource)) {
+			this.toClear.add(lightSource);
 		}
 	}
 
@@ -512,6 +930,15 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 	 * Clears light sources.
 	 */
 	public void onChangeWorld(@Nullable ClientLevel level) {
+		this.lightSourceClusters.clear();
+		this.parkedLightSources.forEach(lightSource -> {
+			if (lightSource instanceof EntityDynamicLightSource entity) entity.resetDynamicLight();
+		});
+		this.parkedLightSources.clear();
+		this.dynamicLightBehaviorSources.clear();
+		this.tickWheel.clear();
+		this.pendingLuminanceEvaluations.clear();
+
 		var chunkProviders = this.dynamicLightSources.iterator();
 		DynamicLightSource it;
 		while (chunkProviders.hasNext()) {
@@ -541,7 +968,15 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 	 * @param filter the removal filter
 	 */
 	public boolean removeLightSources(Predicate<DynamicLightSource> filter) {
-		boolean result = false;
+		boolean result = this.lightSourceClusters.removeIf(filter);
+		result |= this.parkedLightSources.removeIf(lightSource -> {
+			if (!filter.test(lightSource)) return false;
+
+			if (lightSource instanceof EntityDynamicLightSourceBehavior behavior && behavior.getLuminance() > 0) {
+				behavior.resetDynamicLight();
+			}
+			return true;
+		});
 
 		var dynamicLightSources = this.dynamicLightSources.iterator();
 		DynamicLightSource it;
@@ -679,6 +1114,10 @@ public class LambDynLights implements ClientModInitializer, DynamicLightsContext
 			}
 		}
 
+		return getCompatLuminanceFromItems(entity, submergedInFluid, luminance);
+	}
+
+	private static int getCompatLuminanceFromItems(LivingEntity entity, boolean submergedInFluid, int luminance) {
 		if (luminance < 15) {
 			for (var compat : CompatLayer.LAYERS) {
 				luminance = Math.max(luminance, compat.getLivingEntityLuminanceFromItems(INSTANCE.itemLightSources, entity, submergedInFluid));
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights;
+
+import dev.lambdaurora.spruceui.util.Nameable;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Represents the available backends answering the dynamic light level queries.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public enum LightingBackend implements Nameable {
+	/**
+	 * Every query looks up the light sources around the queried position in the spatial lookup.
+	 */
+	SPATIAL_LOOKUP(
+			Component.translatable("lambdynlights.option.engine.backend.spatial_lookup").withStyle(ChatFormatting.GREEN)
+	),
+	/**
+	 * The light levels around the camera are kept in a volume updated incrementally as light sources move,
+	 * queries within it are a single read.
+	 *
+	 * @see dev.lambdaurora.lambdynlights.engine.LightClipmap
+	 */
+	CLIPMAP(
+			Component.translatable("lambdynlights.option.engine.backend.clipmap").withStyle(ChatFormatting.YELLOW)
+	);
+
+	private final Component translatedText;
+
+	LightingBackend(Component translatedText) {
+		this.translatedText = translatedText;
+	}
+
+	/**
+	 * {@return the next available lighting backend}
+	 */
+	public LightingBackend next() {
+		LightingBackend[] v = values();
+		if (v.length == this.ordinal() + 1)
+			return v[0];
+		return v[this.ordinal() + 1];
+	}
+
+	/**
+	 * {@return the translated text of the lighting backend}
+	 */
+	public Component getTranslatedText() {
+		return this.translatedText;
+	}
+
+	@Override
+	public String getName() {
+		return this.name().toLowerCase();
+	}
+
+	/**
+	 * Gets the lighting backend from its identifier.
+	 *
+	 * @param id the identifier of the lighting backend
+	 * @return the lighting backend if found, else empty
+	 */
+	public static Optional<LightingBackend> byId(String id) {
+		return Arrays.stream(values()).filter(backend -> backend.getName().equalsIgnoreCase(id)).findFirst();
+	}
+}
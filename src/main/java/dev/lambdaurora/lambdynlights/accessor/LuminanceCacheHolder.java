@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.accessor;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Represents an entity which caches the part of its luminance derived from its light source definitions and its equipment.
+ * <p>
+ * The cached luminance is evaluated again only after an invalidation, when the entity is submerged or leaves a fluid,
+ * when the light sources or the configuration change,
+ * or every {@link dev.lambdaurora.lambdynlights.LambDynLights#LUMINANCE_REFRESH_INTERVAL} ticks at worst.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+@ApiStatus.Internal
+@ApiStatus.NonExtendable
+public interface LuminanceCacheHolder {
+	/**
+	 * {@return the cached luminance of this entity, evaluated again if stale}
+	 */
+	int lambdynlights$getCachedLuminance();
+
+	/**
+	 * {@return {@code true} if the cached luminance of this entity is stale and must be evaluated again, or {@code false} otherwise}
+	 */
+	boolean lambdynlights$isLuminanceStale();
+
+	/**
+	 * Sets the cached luminance of this entity, evaluated outside of {@link #lambdynlights$getCachedLuminance()}.
+	 *
+	 * @param luminance the luminance to cache
+	 */
+	void lambdynlights$setCachedLuminance(int luminance);
+
+	/**
+	 * {@return the luminance of this entity to cache}
+	 */
+	int lambdynlights$computeLuminance();
+
+	/**
+	 * Invalidates the cached luminance of this entity, it will be evaluated again on its next tick.
+	 */
+	void lambdynlights$invalidateLuminance();
+}
@@ -13,17 +13,22 @@ import dev.lambdaurora.lambdynlights.LambDynLights;
 import dev.lambdaurora.lambdynlights.api.behavior.DynamicLightBehavior;
 import dev.lambdaurora.lambdynlights.api.behavior.DynamicLightBehaviorManager;
 import dev.lambdaurora.lambdynlights.engine.source.DeferredDynamicLightSource;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import org.jspecify.annotations.Nullable;
 
 /**
  * Represents the dynamic lighting behavior manager implementation.
+ * <p>
+ * Each behavior maps to its handle, the light source tracking it, so it can be removed without looking through every light source.
  *
  * @author LambdAurora, Akarys
- * @version 4.0.1
+ * @version 4.10.0
  * @since 4.0.0
  */
 public final class DynamicLightBehaviorSources implements DynamicLightBehaviorManager {
 	private final LambDynLights mod;
+	private final Reference2ObjectOpenHashMap<DynamicLightBehavior, DeferredDynamicLightSource> handles
+			= new Reference2ObjectOpenHashMap<>();
 
 	public DynamicLightBehaviorSources(LambDynLights mod) {
 		this.mod = mod;
@@ -31,13 +36,37 @@ public final class DynamicLightBehaviorSources implements DynamicLightBehaviorMa
 
 	@Override
 	public void add(DynamicLightBehavior source) {
-		this.mod.addLightSource(new DeferredDynamicLightSource(source));
+		if (this.handles.containsKey(source)) return;
+
+		var handle = new DeferredDynamicLightSource(source);
+		this.handles.put(source, handle);
+		this.mod.addLightSource(handle);
 	}
 
 	@Override
 	public boolean remove(@Nullable DynamicLightBehavior source) {
 		if (source == null) return false;
 
-		return this.mod.removeLightSources(other -> other instanceof DeferredDynamicLightSource deferred && deferred.behavior() == source);
+		var handle = this.handles.remove(source);
+		if (handle == null) return false;
+
+		this.mod.removeLightSource(handle);
+		return true;
+	}
+
+	/**
+	 * Forgets the handle of the given behavior, which has been removed from the tracked light sources by other means.
+	 *
+	 * @param source the behavior
+	 */
+	public void forget(DynamicLightBehavior source) {
+		this.handles.remove(source);
+	}
+
+	/**
+	 * Forgets every handle, as the tracked light sources are cleared.
+	 */
+	public void clear() {
+		this.handles.clear();
 	}
 }
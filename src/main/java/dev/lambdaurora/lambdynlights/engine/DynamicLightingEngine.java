@@ -12,25 +12,78 @@ package dev.lambdaurora.lambdynlights.engine;
 import com.mojang.logging.LogUtils;
 import dev.lambdaurora.lambdynlights.DynamicLightsConfig;
 import dev.lambdaurora.lambdynlights.LambDynLights;
+import dev.lambdaurora.lambdynlights.LightingBackend;
 import dev.lambdaurora.lambdynlights.accessor.DynamicLightHandlerHolder;
-import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupEntry;
+import dev.lambdaurora.lambdynlights.api.behavior.DynamicLightBehavior;
+import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupWriter;
 import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSource;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import net.minecraft.client.Minecraft;
 import net.minecraft.core.BlockPos;
-import net.minecraft.core.Vec3i;
+import net.minecraft.core.SectionPos;
 import net.minecraft.util.Mth;
 import net.minecraft.world.entity.Entity;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
 
 /**
  * Represents the dynamic lighting engine.
+ * <p>
+ * The spatial lookup is stored as a structure of arrays: each entry is an index into parallel arrays holding
+ * its position and luminance, entries grouped by cell in an open-addressing table keyed by the exact cell coordinates.
+ * Entries backed by a {@link DynamicLightBehavior} additionally have their behavior stored in a side array.
+ * <p>
+ * The entries are grouped using a counting sort: light sources first write their entries unsorted into a staging area,
+ * then the entries are counted per cell slot, and scattered into their final place using the prefix sum of those counts.
+ * <p>
+ * Light sources which changed are reported as dirty, in which case the spatial lookup is updated incrementally:
+ * the entries of the dirty light sources are marked as removed in the sorted entries and in the overflow area,
+ * and only the dirty light sources are split again into the overflow area.
+ * The overflow area is grouped by cell into a cell table of its own, queries look it up like the sorted entries.
+ * A full build is done once the amount of changes since the last full build grows past a threshold.
+ * <p>
+ * With a large number of light sources, the light sources of a full build are split into entries in parallel:
+ * they are partitioned across the fork-join pool, each worker writing into its own staging area,
+ * which are then merged at the offsets given by the prefix sum of their entry counts.
+ * <p>
+ * In pipelined mode, the client thread only splits the light sources of a full build into a staging area handed over
+ * to the build, the staged entries are then sorted into a new snapshot by a background thread which publishes it.
+ * The background thread touches no other state of the engine, which is updated from the finished build
+ * on the client thread at the next computation.
+ * Queries never wait for the build and read the latest published snapshot. If a query reads an older snapshot
+ * than the pending build, the chunk sections recently scheduled for a rebuild are rebuilt again once the build is finished.
+ * <p>
+ * With the {@linkplain LightingBackend#CLIPMAP clipmap backend}, the light levels around the camera are additionally
+ * kept in a {@link LightClipmap} updated from the light sources which changed, the queries within it do not look up the snapshot.
+ * <p>
+ * The result of each computation is published as an immutable {@link SpatialLookupSnapshot} through a volatile field,
+ * allowing chunk meshing threads to query the dynamic light level without any locking.
+ * As the same positions are queried many times while meshing, for example by smooth lighting,
+ * each thread caches its latest query results for the current snapshot.
  *
  * @author LambdAurora, Akarys
- * @version 4.4.0
+ * @version 4.10.0
  * @since 3.1.0
  */
 public final class DynamicLightingEngine implements CellHasher {
@@ -40,19 +93,108 @@ public final class DynamicLightingEngine implements CellHasher {
 	public static final double MAX_RADIUS_SQUARED = MAX_RADIUS * MAX_RADIUS;
 	public static final int CELL_SIZE = Mth.ceil(MAX_RADIUS);
 	public static final int DEFAULT_LIGHT_SOURCES = 1024;
-	private static final Vec3i[] CELL_OFFSETS;
+	/**
+	 * The minimum amount of changes the incremental update tolerates before falling back to a full build.
+	 */
+	private static final int MIN_INCREMENTAL_CHURN = 64;
+	/**
+	 * The maximum load factor of the cell table before it is grown, linear probing degrades quickly past it.
+	 */
+	private static final float MAX_LOAD_FACTOR = .5f;
+	/**
+	 * The load factor of the cell table under which it is considered oversized.
+	 * <p>
+	 * It is far enough below {@link #MAX_LOAD_FACTOR} so that a shrunk table does not grow back right away.
+	 */
+	private static final float MIN_LOAD_FACTOR = .125f;
+	/**
+	 * The number of consecutive ticks the cell table has to stay oversized before it is shrunk,
+	 * so that short drops in the number of lights do not cause a shrink immediately followed by a grow.
+	 */
+	private static final int SHRINK_DWELL_TICKS = 200;
+	private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+	private static final Executor BUILD_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		var thread = new Thread(runnable, "LambDynLights Spatial Lookup Builder");
+		thread.setDaemon(true);
+		return thread;
+	});
+	/**
+	 * The number of keys entries are ordered by within a cell: one for behaviors, and one per luminance level.
+	 */
+	private static final int LUMINANCE_ORDER_KEYS = 17;
 
-	private @Nullable SpatialLookupEntry[] spatialLookupEntries;
-	private int[] startIndices;
+	private volatile SpatialLookupSnapshot snapshot;
+	/**
+	 * The full build currently running in the background in pipelined mode, or {@code null} if there is none.
+	 */
+	private @Nullable PendingBuild pendingBuild;
+	/**
+	 * The chunk sections whose rebuild has been deferred during the current tick in pipelined mode.
+	 */
+	private final LongSet deferredSections = new LongOpenHashSet();
+	/**
+	 * The chunk sections whose rebuild waits for the pending build to be published.
+	 */
+	private final LongSet awaitingSections = new LongOpenHashSet();
+	/**
+	 * The chunk sections which can be rebuilt as the snapshot they have to be meshed with is published.
+	 */
+	private final LongSet publishedSections = new LongOpenHashSet();
+	private long generation = 0;
+	private int size;
+	private final Reference2IntOpenHashMap<DynamicLightSource> ownerIndices = new Reference2IntOpenHashMap<>();
+	private int removedOwnerCount = 0;
+	private final Set<DynamicLightSource> dirtySources = new ReferenceOpenHashSet<>();
+	/**
+	 * The owner of the entries of each light source in the overflow area.
+	 */
+	private final Reference2IntOpenHashMap<DynamicLightSource> overflowOwners = new Reference2IntOpenHashMap<>();
+	private final IntSet staleOverflowOwners = new IntOpenHashSet();
+	private int nextOverflowOwner = 0;
+	private boolean needsFullBuild = true;
+	private int oversizedTicks = 0;
+	private boolean lastComputeIncremental = false;
 	private final long[] computeSpatialLookupTimes = new long[40];
+	private final int[] computeSpatialLookupEntries = new int[40];
 	private int lastEntryCount = 0;
 	private final DynamicLightsConfig config;
+	private StagingWriter staging = new StagingWriter();
+	/**
+	 * The staging area given back by the latest background build, which is reused by the next one.
+	 */
+	private @Nullable StagingWriter spareStaging;
+	private final StagingWriter overflow = new StagingWriter();
+	private StagingWriter[] workerStagings = new StagingWriter[0];
+	private int lastBuildWorkers = 1;
+	private final SectionLightCache sectionLightCache = new SectionLightCache();
+	private final SnapshotRecycler recycler = new SnapshotRecycler();
+	private volatile @Nullable LightClipmap clipmap;
+	private final List<DynamicLightSource> clipmapChangedSources = new ArrayList<>();
+	private final ThreadLocal<QueryCache> queryCache = ThreadLocal.withInitial(QueryCache::new);
+	private final LongAdder queryCacheHits = new LongAdder();
+	private final LongAdder queryCacheMisses = new LongAdder();
+	private long lastTickQueryCacheHits = 0;
+	private long lastTickQueryCacheMisses = 0;
 
 	public DynamicLightingEngine(DynamicLightsConfig config) {
 		this.config = config;
+		this.ownerIndices.defaultReturnValue(-1);
+		this.overflowOwners.defaultReturnValue(-1);
 
-		this.spatialLookupEntries = new SpatialLookupEntry[DEFAULT_LIGHT_SOURCES];
-		this.startIndices = new int[DEFAULT_LIGHT_SOURCES];
+		this.allocate(DEFAULT_LIGHT_SOURCES);
+	}
+
+	/**
+	 * Returns the effective radius of a light of the given luminance, past which it does not brighten anything.
+	 * <p>
+	 * The light level decreases by {@code 15 / MAX_RADIUS} per block,
+	 * which means a light of luminance {@code L} reaches zero at a distance of {@code L * MAX_RADIUS / 15}.
+	 *
+	 * @param luminance the luminance of the light
+	 * @return the effective radius of the light
+	 */
+	public static double getEffectiveRadius(int luminance) {
+		return luminance * MAX_RADIUS / 15.;
 	}
 
 	/**
@@ -76,42 +218,316 @@ public final class DynamicLightingEngine implements CellHasher {
 
 	/**
 	 * Returns the dynamic light level at the specified position.
+	 * <p>
+	 * This method may be called from any thread.
 	 *
 	 * @param pos the position
 	 * @return the dynamic light level at the specified position
 	 */
 	public double getDynamicLightLevel(BlockPos pos) {
+		return this.getDynamicLightmapLevel(pos.getX(), pos.getY(), pos.getZ()) / (double) LightFalloff.PRECISION;
+	}
+
+	/**
+	 * Returns the dynamic light level at the specified position, in sixteenths of a light level from {@code 0} to {@code 240}
+	 * like the block light in the lightmap.
+	 * <p>
+	 * This method may be called from any thread.
+	 *
+	 * @param x the X block coordinate
+	 * @param y the Y block coordinate
+	 * @param z the Z block coordinate
+	 * @return the dynamic light level at the specified position, in sixteenths of a light level
+	 * @see LightFalloff
+	 */
+	public int getDynamicLightmapLevel(int x, int y, int z) {
 		if (!this.config.getDynamicLightsMode().isEnabled()) {
 			return 0;
 		}
 
-		double result = 0;
+		var clipmap = this.clipmap;
+		if (clipmap != null) {
+			int level = clipmap.getDynamicLightmapLevel(x, y, z);
+			if (level != -1) return level;
+		}
 
-		var currentCell = new BlockPos.MutableBlockPos(
-				positionToCell(pos.getX()),
-				positionToCell(pos.getY()),
-				positionToCell(pos.getZ())
-		);
-		var cell = currentCell.immutable();
+		var reader = this.recycler.reader();
+		try {
+			return this.queryCache.get().getDynamicLightmapLevel(this.pinSnapshot(reader), x, y, z);
+		} finally {
+			reader.unpin();
+		}
+	}
+
+	/**
+	 * Computes the dynamic light levels of every block of the given box at once.
+	 * <p>
+	 * This is much faster than querying each block of the box individually, as the light sources are gathered only once.
+	 * This method may be called from any thread.
+	 *
+	 * @param minX the minimum X block coordinate of the box
+	 * @param minY the minimum Y block coordinate of the box
+	 * @param minZ the minimum Z block coordinate of the box
+	 * @param sizeX the size of the box along the X-axis
+	 * @param sizeY the size of the box along the Y-axis
+	 * @param sizeZ the size of the box along the Z-axis
+	 * @param levels the light levels to fill, indexed by {@code ((y - minY) * sizeZ + (z - minZ)) * sizeX + (x - minX)}
+	 * @return {@code true} if any dynamic light reaches the box, or {@code false} otherwise
+	 */
+	public boolean getDynamicLightLevels(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, float[] levels) {
+		if (!this.config.getDynamicLightsMode().isEnabled()) {
+			Arrays.fill(levels, 0, sizeX * sizeY * sizeZ, 0.f);
+			return false;
+		}
+
+		var reader = this.recycler.reader();
+		try {
+			return this.pinSnapshot(reader).getDynamicLightLevels(minX, minY, minZ, sizeX, sizeY, sizeZ, levels);
+		} finally {
+			reader.unpin();
+		}
+	}
 
-		for (var cellOffset : CELL_OFFSETS) {
-			currentCell.setWithOffset(cell, cellOffset);
+	/**
+	 * Computes the dynamic light levels of every block of the given box at once, in sixteenths like in the lightmap.
+	 * <p>
+	 * Each light level is stored as an unsigned byte from {@code 0} to {@link LightFalloff#MAX_LEVEL},
+	 * it must be read with {@code levels[i] & 0xff} as the levels of {@code 8} and above are negative bytes.
+	 * This method may be called from any thread.
+	 *
+	 * @param minX the minimum X block coordinate of the box
+	 * @param minY the minimum Y block coordinate of the box
+	 * @param minZ the minimum Z block coordinate of the box
+	 * @param sizeX the size of the box along the X-axis
+	 * @param sizeY the size of the box along the Y-axis
+	 * @param sizeZ the size of the box along the Z-axis
+	 * @param levels the light levels to fill, indexed by {@code ((y - minY) * sizeZ + (z - minZ)) * sizeX + (x - minX)}
+	 * @return {@code true} if any dynamic light reaches the box, or {@code false} otherwise
+	 * @see #getDynamicLightLevels(int, int, int, int, int, int, float[])
+	 */
+	public boolean getDynamicLightLevels(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, byte[] levels) {
+		if (!this.config.getDynamicLightsMode().isEnabled()) {
+			Arrays.fill(levels, 0, sizeX * sizeY * sizeZ, (byte) 0);
+			return false;
+		}
 
-			int key = this.hashCell(currentCell.getX(), currentCell.getY(), currentCell.getZ());
-			int startIndex = this.startIndices[key];
+		var reader = this.recycler.reader();
+		try {
+			return this.pinSnapshot(reader).getDynamicLightLevels(minX, minY, minZ, sizeX, sizeY, sizeZ, levels);
+		} finally {
+			reader.unpin();
+		}
+	}
+
+	/**
+	 * Returns the dynamic light level at the specified position, using the light grid of its chunk section.
+	 * <p>
+	 * This is meant for chunk meshing which queries every block of a section, the whole section is computed at once.
+	 * This method may be called from any thread.
+	 *
+	 * @param pos the position
+	 * @return the dynamic light level at the specified position
+	 */
+	public double getSectionDynamicLightLevel(BlockPos pos) {
+		return this.getSectionDynamicLightmapLevel(pos.getX(), pos.getY(), pos.getZ()) / (double) LightFalloff.PRECISION;
+	}
 
-			for (int i = startIndex; i < this.spatialLookupEntries.length; i++) {
-				SpatialLookupEntry entry = this.spatialLookupEntries[i];
-				if (entry == null || entry.cellKey() != key) break;
+	/**
+	 * Returns the dynamic light level at the specified position using the light grid of its chunk section,
+	 * in sixteenths of a light level from {@code 0} to {@code 240} like the block light in the lightmap.
+	 * <p>
+	 * This method may be called from any thread.
+	 *
+	 * @param x the X block coordinate
+	 * @param y the Y block coordinate
+	 * @param z the Z block coordinate
+	 * @return the dynamic light level at the specified position, in sixteenths of a light level
+	 * @see #getSectionDynamicLightLevel(BlockPos)
+	 */
+	public int getSectionDynamicLightmapLevel(int x, int y, int z) {
+		if (!this.config.getDynamicLightsMode().isEnabled()) {
+			return 0;
+		}
 
-				double light = entry.getDynamicLightLevel(pos);
-				if (light > result) {
-					result = light;
-				}
+		var clipmap = this.clipmap;
+		if (clipmap != null) {
+			int level = clipmap.getDynamicLightmapLevel(x, y, z);
+			if (level != -1) return level;
+		}
+
+		var reader = this.recycler.reader();
+		try {
+			return this.sectionLightCache.getDynamicLightmapLevel(this.pinSnapshot(reader), x, y, z);
+		} finally {
+			reader.unpin();
+		}
+	}
+
+	/**
+	 * {@return the cache of chunk section light grids}
+	 */
+	public SectionLightCache getSectionLightCache() {
+		return this.sectionLightCache;
+	}
+
+	/**
+	 * Returns the maximum dynamic light level which can reach the specified position.
+	 * <p>
+	 * This is a very cheap upper bound of {@link #getDynamicLightLevel(BlockPos)}, which is {@code 0} in chunk sections
+	 * no dynamic light can reach.
+	 * This method may be called from any thread.
+	 *
+	 * @param pos the position
+	 * @return the maximum dynamic light level at the specified position
+	 */
+	public int getMaxDynamicLightLevel(BlockPos pos) {
+		if (!this.config.getDynamicLightsMode().isEnabled()) {
+			return 0;
+		}
+
+		var reader = this.recycler.reader();
+		try {
+			return this.pinSnapshot(reader).getMaxLuminanceAt(SectionPos.asLong(pos));
+		} finally {
+			reader.unpin();
+		}
+	}
+
+	/**
+	 * {@return the light clipmap if the clipmap backend is selected, or {@code null} otherwise}
+	 */
+	public @Nullable LightClipmap getClipmap() {
+		return this.clipmap;
+	}
+
+	/**
+	 * {@return the latest published snapshot of the spatial lookup}
+	 * <p>
+	 * The snapshot is not pinned, this must be called on the client thread and the snapshot must not be held past the call.
+	 */
+	public SpatialLookupSnapshot getSnapshot() {
+		return this.currentSnapshot();
+	}
+
+	/**
+	 * {@return the snapshot to query on the client thread, which is the only thread reclaiming snapshots}
+	 * <p>
+	 * Queries never wait for the pending build,
+	 * the chunk sections which need it are only rebuilt once it is published.
+	 */
+	private SpatialLookupSnapshot currentSnapshot() {
+		return this.snapshot;
+	}
+
+	/**
+	 * Pins the published snapshot for the given reader, so that its arrays are not recycled while it is queried.
+	 * <p>
+	 * The reader must be unpinned once the query is finished.
+	 *
+	 * @param reader the reader of the current thread
+	 * @return the snapshot to query
+	 * @see SnapshotRecycler
+	 */
+	private SpatialLookupSnapshot pinSnapshot(SnapshotRecycler.Reader reader) {
+		var snapshot = this.snapshot;
+
+		if (reader.pin(snapshot)) {
+			// A snapshot pinned while still published cannot be reclaimed, otherwise the new one has to be pinned instead.
+			for (var published = this.snapshot; published != snapshot; published = this.snapshot) {
+				snapshot = published;
+				reader.repin(snapshot);
 			}
 		}
 
-		return Mth.clamp(result, 0, 15);
+		return snapshot;
+	}
+
+	/**
+	 * Publishes the given snapshot from the client thread, and retires the parts of the previous one which are not shared.
+	 *
+	 * @param snapshot the new snapshot
+	 */
+	private void publish(SpatialLookupSnapshot snapshot) {
+		var previous = this.snapshot;
+		this.snapshot = snapshot;
+
+		if (previous != null) {
+			this.recycler.retire(previous, snapshot);
+		}
+	}
+
+	/**
+	 * Waits for the pending build to be finished and updates the state of the engine from it,
+	 * this must be called on the client thread before modifying the state of the engine.
+	 */
+	private void awaitPendingBuild() {
+		var pendingBuild = this.pendingBuild;
+		if (pendingBuild == null) return;
+
+		this.pendingBuild = null;
+
+		int capacity = pendingBuild.capacity().join();
+		if (capacity == -1) {
+			// The previous snapshot is kept, everything is built again by the next computation.
+			this.needsFullBuild = true;
+		} else {
+			this.resize(capacity);
+			this.recycler.retire(pendingBuild.previous(), this.snapshot);
+		}
+
+		// Clear the staged behaviors to not leak them.
+		pendingBuild.staging().clear();
+		this.spareStaging = pendingBuild.staging();
+
+		// The snapshot these chunk sections have to be meshed with is now published.
+		this.publishedSections.addAll(this.awaitingSections);
+		this.awaitingSections.clear();
+	}
+
+	/**
+	 * {@return {@code true} if full builds are sorted in the background, or {@code false} otherwise}
+	 * <p>
+	 * The clipmap backend is updated from the new snapshot as soon as it is computed, so it never pipelines builds.
+	 */
+	private boolean isPipelined() {
+		return this.config.getPipelinedBuild().get() && this.config.getLightingBackend() != LightingBackend.CLIPMAP;
+	}
+
+	/**
+	 * Defers the rebuild of the given chunk section in pipelined mode,
+	 * so that it is not meshed before the snapshot computed during this tick is published.
+	 *
+	 * @param section the packed section position
+	 * @return {@code true} if the rebuild is deferred, or {@code false} if it has to be scheduled right away
+	 * @see #flushChunkRebuilds(LongConsumer)
+	 */
+	public boolean deferChunkRebuild(long section) {
+		if (!this.isPipelined()) return false;
+
+		this.deferredSections.add(section);
+		return true;
+	}
+
+	/**
+	 * Gives the chunk sections whose rebuild was deferred and which can now be rebuilt, this must be called at the end of the tick.
+	 * <p>
+	 * The sections deferred during this tick wait for the build started during this tick if there is one,
+	 * and are given right away otherwise as the new snapshot is already published.
+	 *
+	 * @param consumer the consumer of the packed section positions
+	 */
+	public void flushChunkRebuilds(LongConsumer consumer) {
+		if (this.pendingBuild != null) {
+			this.awaitingSections.addAll(this.deferredSections);
+		} else {
+			this.publishedSections.addAll(this.deferredSections);
+		}
+		this.deferredSections.clear();
+
+		if (this.publishedSections.isEmpty()) return;
+
+		this.publishedSections.forEach(consumer);
+		this.publishedSections.clear();
 	}
 
 	/**
@@ -128,6 +544,62 @@ public final class DynamicLightingEngine implements CellHasher {
 				.orElse(0);
 	}
 
+	/**
+	 * {@return the average number of entries processed per second when computing the spatial lookup across 40 ticks}
+	 */
+	public float getComputeSpatialLookupThroughput() {
+		long totalTime = 0;
+		long totalEntries = 0;
+
+		for (int i = 0; i < this.computeSpatialLookupTimes.length; i++) {
+			if (this.computeSpatialLookupTimes[i] > 0) {
+				totalTime += this.computeSpatialLookupTimes[i];
+				totalEntries += this.computeSpatialLookupEntries[i];
+			}
+		}
+
+		if (totalTime == 0) {
+			return 0.f;
+		}
+
+		return (float) (totalEntries * 1_000_000_000.0 / totalTime);
+	}
+
+	/**
+	 * {@return the number of queries which hit the per-thread query cache during the last tick}
+	 */
+	public long getQueryCacheHits() {
+		return this.lastTickQueryCacheHits;
+	}
+
+	/**
+	 * {@return the number of queries which missed the per-thread query cache during the last tick}
+	 */
+	public long getQueryCacheMisses() {
+		return this.lastTickQueryCacheMisses;
+	}
+
+	/**
+	 * {@return {@code true} if the last computation of the spatial lookup was an incremental update, or {@code false} if it was a full build}
+	 */
+	public boolean wasLastComputeIncremental() {
+		return this.lastComputeIncremental;
+	}
+
+	/**
+	 * {@return the number of workers which split the light sources during the last full build, {@code 1} if it was not parallel}
+	 */
+	public int getLastBuildWorkers() {
+		return this.lastBuildWorkers;
+	}
+
+	/**
+	 * {@return the number of entries in the overflow area of the incremental update}
+	 */
+	public int getOverflowEntryCount() {
+		return this.snapshot.overflowCount();
+	}
+
 	@Override
 	public int hashAt(int x, int y, int z) {
 		return this.hashCell(
@@ -149,119 +621,609 @@ public final class DynamicLightingEngine implements CellHasher {
 
 	@Override
 	public int hashCell(int cellX, int cellY, int cellZ) {
-		return Math.abs(((cellX + 31) * 19 + cellY) * 41 + cellZ) * 83 & (this.spatialLookupEntries.length - 1);
+		return this.currentSnapshot().hashCell(cellX, cellY, cellZ);
 	}
 
 	/**
 	 * {@return the size of the spatial lookup}
 	 */
 	public int getSize() {
-		return this.spatialLookupEntries.length;
+		return this.size;
 	}
 
 	/**
 	 * Resets the size of the spatial lookup back to its default size.
 	 */
 	public void resetSize() {
-		this.resize(DEFAULT_LIGHT_SOURCES);
+		this.awaitPendingBuild();
+		this.oversizedTicks = 0;
+		this.staging.trim(DEFAULT_LIGHT_SOURCES);
+		this.spareStaging = null;
+		this.overflow.trim(DEFAULT_LIGHT_SOURCES);
+		this.allocate(DEFAULT_LIGHT_SOURCES);
+		this.recycler.clear();
+		this.invalidate();
+		this.sectionLightCache.clear();
+	}
+
+	/**
+	 * Marks the given light source as dirty, its entries will be updated in the next computation of the spatial lookup.
+	 * <p>
+	 * A light source is dirty if it has been added, removed, or if its entries changed.
+	 *
+	 * @param lightSource the light source which changed
+	 */
+	public void markDirty(DynamicLightSource lightSource) {
+		this.dirtySources.add(lightSource);
+	}
+
+	/**
+	 * Invalidates the spatial lookup, forcing the next computation to be a full build.
+	 */
+	public void invalidate() {
+		this.awaitPendingBuild();
+		this.needsFullBuild = true;
+		this.dirtySources.clear();
+		this.clearOverflow();
+
+		var clipmap = this.clipmap;
+		if (clipmap != null) {
+			clipmap.invalidate();
+		}
 	}
 
 	private void resize(int newLength) {
-		if (this.spatialLookupEntries.length == newLength) return;
+		if (this.size == newLength) return;
+
+		this.size = newLength;
+	}
+
+	/**
+	 * Shrinks the spatial lookup if it stayed oversized for long enough, for example after a spike of light sources.
+	 *
+	 * @return {@code true} if the spatial lookup has been shrunk and requires a full build, or {@code false} otherwise
+	 */
+	private boolean shrinkIfOversized() {
+		int cellCount = this.snapshot.cellCount();
+
+		if (this.size <= DEFAULT_LIGHT_SOURCES || cellCount >= this.size * MIN_LOAD_FACTOR) {
+			this.oversizedTicks = 0;
+			return false;
+		}
 
-		this.spatialLookupEntries = new SpatialLookupEntry[newLength];
-		this.startIndices = new int[newLength];
+		if (++this.oversizedTicks < SHRINK_DWELL_TICKS) {
+			return false;
+		}
+
+		this.oversizedTicks = 0;
+
+		// Shrink down to a load factor in the middle of the hysteresis band.
+		int newLength = this.size;
+		while (newLength > DEFAULT_LIGHT_SOURCES && cellCount <= newLength / 2 * (MAX_LOAD_FACTOR / 2)) {
+			newLength /= 2;
+		}
+
+		LambDynLights.info(LOGGER,
+				"Shrinking spatial lookup, load factor stayed under {} for {} ticks ({} cells for a capacity of {}). New capacity will be {}.",
+				MIN_LOAD_FACTOR, SHRINK_DWELL_TICKS, cellCount, this.size, newLength
+		);
+
+		this.resize(newLength);
+		this.staging.trim(Math.max(DEFAULT_LIGHT_SOURCES, HashCommon.nextPowerOfTwo(this.lastEntryCount * 2)));
+		this.spareStaging = null;
+		this.overflow.trim(DEFAULT_LIGHT_SOURCES);
+		this.recycler.clear();
+		return true;
+	}
+
+	private void allocate(int length) {
+		this.size = length;
+		this.publish(SpatialLookupSnapshot.empty(++this.generation, length));
 	}
 
 	/**
 	 * Computes the spatial lookup given the light sources.
 	 * <p>
 	 * The spatial lookup will allow for a very quick and efficient lookup of relevant light sources at a given position.
+	 * <p>
+	 * Only the light sources marked as dirty are updated, unless a full build is required.
+	 * A new snapshot is published only if the spatial lookup changed.
 	 *
 	 * @param lightSources the light sources to compute into a spatial lookup
+	 * @param forceFullBuild {@code true} to rebuild the whole spatial lookup, or {@code false} otherwise
+	 * @see #markDirty(DynamicLightSource)
 	 */
-	public void computeSpatialLookup(Collection<? extends DynamicLightSource> lightSources) {
+	public void computeSpatialLookup(Collection<? extends DynamicLightSource> lightSources, boolean forceFullBuild) {
+		this.lastTickQueryCacheHits = this.queryCacheHits.sumThenReset();
+		this.lastTickQueryCacheMisses = this.queryCacheMisses.sumThenReset();
+
 		long startTime = System.nanoTime();
+		int processed;
 
-		var it = this.computeSpatialEntries(lightSources);
+		this.awaitPendingBuild();
+		this.recycler.reclaim();
+		boolean shrunk = this.shrinkIfOversized();
 
-		int i = 0;
-		while (it.hasNext()) {
-			var entry = it.next();
-			this.spatialLookupEntries[i] = entry;
-			i++;
+		var clipmap = this.clipmap;
+		if (this.config.getLightingBackend() != LightingBackend.CLIPMAP) {
+			clipmap = this.clipmap = null;
+		} else if (clipmap == null) {
+			clipmap = this.clipmap = new LightClipmap();
 		}
 
-		for (i = 0; i < this.spatialLookupEntries.length; i++) {
-			var entry = this.spatialLookupEntries[i];
+		// The clipmap has to know which light sources changed, unless it is recomputed entirely anyway.
+		Collection<DynamicLightSource> changedSources = null;
+		if (clipmap != null && !forceFullBuild && !this.needsFullBuild) {
+			this.clipmapChangedSources.clear();
+			this.clipmapChangedSources.addAll(this.dirtySources);
+			changedSources = this.clipmapChangedSources;
+		}
 
-			if (entry == null) {
-				this.lastEntryCount = i;
-				break;
-			}
+		if (!forceFullBuild && !shrunk && !this.needsFullBuild && (processed = this.updateIncrementally(lightSources)) != -1) {
+			this.lastComputeIncremental = true;
+		} else {
+			processed = this.build(lightSources);
+			this.lastComputeIncremental = false;
+		}
 
-			int key = entry.cellKey();
-			int previousKey = i == 0 ? Integer.MAX_VALUE : Objects.requireNonNull(this.spatialLookupEntries[i - 1]).cellKey();
+		if (this.pendingBuild == null) {
+			var snapshot = this.snapshot;
+			this.lastEntryCount = snapshot.entryCount() + snapshot.overflowCount();
+		} else {
+			this.lastEntryCount = processed;
+		}
 
-			if (key != previousKey) {
-				this.startIndices[key] = i;
-			}
+		if (clipmap != null) {
+			// Builds are never pipelined with the clipmap, it is updated from the new snapshot.
+			var camera = Minecraft.getInstance().gameRenderer.getMainCamera().position();
+			clipmap.update(
+					this.snapshot, lightSources, changedSources,
+					Mth.floor(camera.x), Mth.floor(camera.y), Mth.floor(camera.z)
+			);
+			this.clipmapChangedSources.clear();
 		}
 
 		long endTime = System.nanoTime();
-		for (i = 0; i < this.computeSpatialLookupTimes.length - 1; i++) {
+		for (int i = 0; i < this.computeSpatialLookupTimes.length - 1; i++) {
 			this.computeSpatialLookupTimes[i] = this.computeSpatialLookupTimes[i + 1];
+			this.computeSpatialLookupEntries[i] = this.computeSpatialLookupEntries[i + 1];
 		}
 		this.computeSpatialLookupTimes[this.computeSpatialLookupTimes.length - 1] = endTime - startTime;
+		this.computeSpatialLookupEntries[this.computeSpatialLookupEntries.length - 1] = processed;
+	}
+
+	/**
+	 * Updates the spatial lookup using only the light sources which are dirty.
+	 * <p>
+	 * The sorted entries of the dirty light sources are marked as removed, their entries in the overflow area are dropped,
+	 * and only the dirty light sources are split again into the overflow area.
+	 * The overflow area is then grouped by cell into a new cell table,
+	 * while the sorted entries of the current snapshot are shared with the new snapshot.
+	 *
+	 * @param lightSources the light sources to compute into a spatial lookup
+	 * @return the number of entries split again, or {@code -1} if a full build is required instead
+	 */
+	private int updateIncrementally(Collection<? extends DynamicLightSource> lightSources) {
+		if (this.dirtySources.isEmpty()) {
+			// Nothing changed, the current snapshot is still valid.
+			return 0;
+		}
+
+		var snapshot = this.snapshot;
+		boolean[] removedOwners = snapshot.removedOwners();
+		boolean copiedRemovedOwners = false;
+
+		for (var lightSource : this.dirtySources) {
+			int owner = this.ownerIndices.removeInt(lightSource);
+
+			if (owner != -1) {
+				if (!copiedRemovedOwners) {
+					// The published snapshot must never be modified.
+					var copy = this.recycler.takeRemovedOwners(removedOwners.length);
+					System.arraycopy(removedOwners, 0, copy, 0, removedOwners.length);
+					removedOwners = copy;
+					copiedRemovedOwners = true;
+				}
+
+				removedOwners[owner] = true;
+				this.removedOwnerCount++;
+			}
+
+			int overflowOwner = this.overflowOwners.removeInt(lightSource);
+			if (overflowOwner != -1) {
+				this.staleOverflowOwners.add(overflowOwner);
+			}
+		}
+
+		var overflow = this.overflow;
+		overflow.removeOwners(this.staleOverflowOwners);
+		this.staleOverflowOwners.clear();
+
+		int previousCount = overflow.count + overflow.largeCount;
+		for (var lightSource : this.dirtySources) {
+			if (lightSources.contains(lightSource)) {
+				int overflowOwner = this.nextOverflowOwner++;
+				this.overflowOwners.put(lightSource, overflowOwner);
+				overflow.owner = overflowOwner;
+				lightSource.splitIntoDynamicLightEntries(overflow);
+			}
+		}
+		this.dirtySources.clear();
+
+		if (overflow.count + overflow.largeCount + this.removedOwnerCount > Math.max(MIN_INCREMENTAL_CHURN, snapshot.entryCount() / 4)) {
+			return -1;
+		}
+
+		// The overflow area holds at most as many cells as entries, so its cell table never has to grow.
+		int capacity = HashCommon.nextPowerOfTwo(Math.max(16, (int) Math.ceil(overflow.count / MAX_LOAD_FACTOR)));
+		var overflowTable = overflow.count == 0 && overflow.largeCount == 0
+				? SpatialLookupSnapshot.CellTable.EMPTY
+				: buildCellTable(overflow, capacity, this.recycler.takeOverflow());
+
+		this.publish(snapshot.withOverflow(++this.generation, removedOwners, overflowTable));
+		return overflow.count + overflow.largeCount - previousCount;
+	}
+
+	/**
+	 * Drops every entry of the overflow area.
+	 */
+	private void clearOverflow() {
+		this.overflow.clear();
+		this.overflowOwners.clear();
+		this.staleOverflowOwners.clear();
+		this.nextOverflowOwner = 0;
+	}
+
+	/**
+	 * Builds the whole spatial lookup from the given light sources.
+	 *
+	 * @param lightSources the light sources to compute into a spatial lookup
+	 * @return the number of entries
+	 */
+	private int build(Collection<? extends DynamicLightSource> lightSources) {
+		this.staging.reset();
+		this.ownerIndices.clear();
+
+		int threshold = this.config.getParallelBuildThreshold();
+		int owner;
+		if (PARALLELISM > 1 && threshold > 0 && lightSources.size() >= threshold) {
+			owner = this.splitInParallel(lightSources);
+		} else {
+			owner = 0;
+			for (var lightSource : lightSources) {
+				this.ownerIndices.put(lightSource, owner);
+				this.staging.owner = owner;
+				lightSource.splitIntoDynamicLightEntries(this.staging);
+				owner++;
+			}
+
+			this.lastBuildWorkers = 1;
+		}
+
+		this.removedOwnerCount = 0;
+		this.dirtySources.clear();
+		this.clearOverflow();
+		this.needsFullBuild = false;
+
+		int count = this.staging.count;
+		int largeCount = this.staging.largeCount;
+
+		if (this.isPipelined()) {
+			// The build takes the staging area over, the next build writes into the spare one.
+			var staging = this.staging;
+			this.staging = this.spareStaging != null ? this.spareStaging : new StagingWriter();
+			this.spareStaging = null;
+
+			int capacity = this.size;
+			long generation = ++this.generation;
+			// The recycled arrays are taken on the client thread, the build then owns them.
+			var recycled = this.recycler.takeEntries();
+			var removedOwners = this.recycler.takeRemovedOwners(owner);
+			this.pendingBuild = new PendingBuild(staging, this.snapshot, CompletableFuture.supplyAsync(
+					() -> this.sortEntriesInBackground(staging, generation, removedOwners, capacity, recycled), BUILD_EXECUTOR
+			));
+		} else {
+			this.publish(this.sortEntries(owner));
+		}
+
+		return count + largeCount;
 	}
 
-	private Iterator<SpatialLookupEntry> computeSpatialEntries(
-			Collection<? extends DynamicLightSource> lightSources
+	/**
+	 * Groups the entries of a full build by cell in the background, and publishes the new snapshot.
+	 * <p>
+	 * Only the given staging area, which is owned by the build, is touched, and only the snapshot is published.
+	 * The rest of the state of the engine is updated from the result on the client thread.
+	 *
+	 * @param staging the staging area of the build
+	 * @param generation the generation reserved for the new snapshot
+	 * @param removedOwners the cleared removed owners of the new snapshot, one per light source which wrote the staged entries
+	 * @param capacity the initial number of slots of the cell table
+	 * @param recycled the reclaimed cell table whose arrays the new cell table may reuse
+	 * @return the number of slots of the new cell table, or {@code -1} if the build failed
+	 */
+	private int sortEntriesInBackground(
+			StagingWriter staging, long generation, boolean[] removedOwners, int capacity,
+			SpatialLookupSnapshot.@Nullable CellTable recycled
 	) {
-		var spatialEntries = lightSources.stream()
-				.flatMap(lightSource ->
-						lightSource.splitIntoDynamicLightEntries(this)
-				)
-				.toList();
-
-		if (spatialEntries.size() > this.spatialLookupEntries.length * .95f) {
-			int newLength = this.spatialLookupEntries.length * 2;
-			LambDynLights.info(LOGGER,
-					"Resizing spatial lookup, capacity limit of {} reached. New capacity will be {}.",
-					this.spatialLookupEntries.length, newLength
-			);
+		try {
+			var entries = buildCellTable(staging, capacity, recycled);
+			this.snapshot = new SpatialLookupSnapshot(generation, entries, removedOwners, SpatialLookupSnapshot.CellTable.EMPTY);
+			return entries.capacity();
+		} catch (Throwable e) {
+			// Keep the previous snapshot, queries must never fail because of a background build.
+			LambDynLights.error(LOGGER, "Failed to build the spatial lookup in the background.", e);
+			return -1;
+		}
+	}
 
-			this.resize(newLength);
-			return this.computeSpatialEntries(lightSources);
+	/**
+	 * Splits the given light sources into the staging area in parallel.
+	 * <p>
+	 * The light sources are partitioned across the workers, each writing into its own staging area.
+	 * The staging areas are then merged at the offsets given by the prefix sum of their entry counts,
+	 * which keeps the entries in the same order as a serial split.
+	 *
+	 * @param lightSources the light sources to split
+	 * @return the number of light sources
+	 */
+	private int splitInParallel(Collection<? extends DynamicLightSource> lightSources) {
+		var sources = lightSources.toArray(new DynamicLightSource[0]);
+		for (int i = 0; i < sources.length; i++) {
+			this.ownerIndices.put(sources[i], i);
 		}
 
-		Arrays.fill(this.spatialLookupEntries, null);
-		Arrays.fill(this.startIndices, Integer.MAX_VALUE);
+		int workers = PARALLELISM;
+		if (this.workerStagings.length != workers) {
+			this.workerStagings = new StagingWriter[workers];
 
-		return spatialEntries.stream()
-				.limit(this.spatialLookupEntries.length)
-				.sorted(Comparator.comparingInt(SpatialLookupEntry::cellKey))
-				.iterator();
+			for (int i = 0; i < workers; i++) {
+				this.workerStagings[i] = new StagingWriter();
+			}
+		}
+
+		var workerStagings = this.workerStagings;
+		int partition = Math.ceilDiv(sources.length, workers);
+
+		IntStream.range(0, workers).parallel().forEach(worker -> {
+			var writer = workerStagings[worker];
+			writer.reset();
+
+			int end = Math.min(sources.length, (worker + 1) * partition);
+			for (int i = worker * partition; i < end; i++) {
+				writer.owner = i;
+				sources[i].splitIntoDynamicLightEntries(writer);
+			}
+		});
+
+		// Prefix sum of the entry counts of each worker to find where their entries start.
+		int[] offsets = new int[workers + 1];
+		for (int worker = 0; worker < workers; worker++) {
+			offsets[worker + 1] = offsets[worker] + workerStagings[worker].count;
+		}
+
+		var staging = this.staging;
+		staging.ensureCapacity(offsets[workers]);
+		staging.count = offsets[workers];
+
+		IntStream.range(0, workers).parallel().forEach(worker -> workerStagings[worker].copyTo(staging, offsets[worker]));
+
+		for (var writer : workerStagings) {
+			writer.copyLargeEntriesTo(staging);
+			writer.clear();
+		}
+
+		this.lastBuildWorkers = workers;
+		return sources.length;
+	}
+
+	/**
+	 * Groups the staged entries by cell using a counting sort into a new snapshot.
+	 *
+	 * @param owners the number of light sources which wrote the staged entries
+	 * @return the new snapshot
+	 */
+	private SpatialLookupSnapshot sortEntries(int owners) {
+		var entries = buildCellTable(this.staging, this.size, this.recycler.takeEntries());
+
+		// Clear the staged behaviors to not leak them.
+		this.staging.clear();
+		this.resize(entries.capacity());
+
+		return new SpatialLookupSnapshot(
+				++this.generation, entries, this.recycler.takeRemovedOwners(owners), SpatialLookupSnapshot.CellTable.EMPTY
+		);
+	}
+
+	/**
+	 * Groups the entries of the given staging area by cell using a counting sort into a new cell table.
+	 * <p>
+	 * The staging area itself is left untouched, except for its scratch keys and order.
+	 * The arrays of the given reclaimed cell table are reused whenever they are large enough.
+	 *
+	 * @param staging the staging area holding the entries
+	 * @param capacity the initial number of slots of the cell table, which is grown if the load factor would get too high
+	 * @param recycled the reclaimed cell table whose arrays may be reused, or {@code null} if there is none
+	 * @return the new cell table
+	 */
+	private static SpatialLookupSnapshot.CellTable buildCellTable(
+			StagingWriter staging, int capacity, SpatialLookupSnapshot.@Nullable CellTable recycled
+	) {
+		int count = staging.count;
+
+		long[] slotCells;
+		int[] startIndices;
+		int cellCount;
+		int maxProbeLength;
+		long totalProbeLength;
+
+		// First pass: insert the cells into the cell table, and count the entries of each cell.
+		// Each slot count is stored at the next index so that the prefix sum directly gives the start indices.
+		insert:
+		for (;;) {
+			int mask = capacity - 1;
+			if (recycled != null && recycled.capacity() == capacity) {
+				// Stale cells are harmless, a slot is only occupied if it holds entries.
+				slotCells = recycled.slotCells;
+				startIndices = recycled.startIndices;
+				Arrays.fill(startIndices, 0);
+			} else {
+				slotCells = new long[capacity];
+				startIndices = new int[capacity + 1];
+			}
+			cellCount = 0;
+			maxProbeLength = 0;
+			totalProbeLength = 0;
+
+			for (int i = 0; i < count; i++) {
+				long cell = staging.cells[i];
+				int slot = SpatialLookupSnapshot.homeSlot(cell, mask);
+				int probeLength = 0;
+
+				while (startIndices[slot + 1] != 0 && slotCells[slot] != cell) {
+					slot = (slot + 1) & mask;
+					probeLength++;
+				}
+
+				if (startIndices[slot + 1] == 0) {
+					if (++cellCount > capacity * MAX_LOAD_FACTOR) {
+						int newLength = capacity * 2;
+
+						LambDynLights.info(LOGGER,
+								"Growing spatial lookup, load factor would exceed {} with a capacity of {}. New capacity will be {}.",
+								MAX_LOAD_FACTOR, capacity, newLength
+						);
+
+						capacity = newLength;
+						continue insert;
+					}
+
+					slotCells[slot] = cell;
+					totalProbeLength += probeLength;
+					maxProbeLength = Math.max(maxProbeLength, probeLength);
+				}
+
+				staging.keys[i] = slot;
+				startIndices[slot + 1]++;
+			}
+
+			break;
+		}
+
+		int[] entryX;
+		int[] entryY;
+		int[] entryZ;
+		byte[] entryLuminance;
+		DynamicLightBehavior[] entryBehaviors;
+		int[] entryOwners;
+		if (recycled != null && recycled.entryX.length >= count) {
+			entryX = recycled.entryX;
+			entryY = recycled.entryY;
+			entryZ = recycled.entryZ;
+			entryLuminance = recycled.entryLuminance;
+			entryBehaviors = recycled.entryBehaviors;
+			entryOwners = recycled.entryOwners;
+			// Do not leak the behaviors past the new entries.
+			if (count < recycled.entryCount()) {
+				Arrays.fill(entryBehaviors, count, recycled.entryCount(), null);
+			}
+		} else {
+			// Leave some room so that the arrays can be reused even if the number of entries slightly grows.
+			int length = count + (count >> 3);
+			entryX = new int[length];
+			entryY = new int[length];
+			entryZ = new int[length];
+			entryLuminance = new byte[length];
+			entryBehaviors = new DynamicLightBehavior[length];
+			entryOwners = new int[length];
+		}
+
+		// Prefix sum to find where the entries of each slot start.
+		for (int slot = 0; slot < capacity; slot++) {
+			startIndices[slot + 1] += startIndices[slot];
+		}
+		int[] bucketCursors = Arrays.copyOf(startIndices, capacity);
+
+		// Order the entries by decreasing luminance using a counting sort, behaviors first as their luminance is unknown.
+		// The scatter being stable, the entries of each cell end up in that order, which allows queries to stop early.
+		int[] luminanceStarts = new int[LUMINANCE_ORDER_KEYS + 1];
+		for (int i = 0; i < count; i++) {
+			luminanceStarts[luminanceOrderKey(staging, i) + 1]++;
+		}
+		for (int key = 0; key < LUMINANCE_ORDER_KEYS; key++) {
+			luminanceStarts[key + 1] += luminanceStarts[key];
+		}
+		for (int i = 0; i < count; i++) {
+			staging.order[luminanceStarts[luminanceOrderKey(staging, i)]++] = i;
+		}
+
+		// Second pass: scatter the entries into their place.
+		for (int j = 0; j < count; j++) {
+			int i = staging.order[j];
+			int index = bucketCursors[staging.keys[i]]++;
+
+			entryX[index] = staging.x[i];
+			entryY[index] = staging.y[i];
+			entryZ[index] = staging.z[i];
+			entryLuminance[index] = staging.luminance[i];
+			entryBehaviors[index] = staging.behaviors[i];
+			entryOwners[index] = staging.owners[i];
+		}
+
+		var largeBehaviors = staging.buildLargeBehaviorIndex();
+
+		// Find how far the lights of each cell reach, and which chunk sections can be lit and how much,
+		// from the brightest entry of each cell.
+		int[] slotReachesSquared;
+		Long2ByteMap litSections;
+		if (recycled != null) {
+			slotReachesSquared = slotCells == recycled.slotCells ? recycled.slotReachesSquared : new int[capacity];
+			litSections = recycled.litSections;
+			litSections.clear();
+		} else {
+			slotReachesSquared = new int[capacity];
+			litSections = new Long2ByteOpenHashMap();
+		}
+		for (int slot = 0; slot < capacity; slot++) {
+			int endIndex = startIndices[slot + 1];
+			if (startIndices[slot] == endIndex) continue;
+
+			int luminance = 0;
+			boolean deferred = false;
+			for (int i = startIndices[slot]; i < endIndex; i++) {
+				if (entryBehaviors[i] != null) {
+					deferred = true;
+				} else {
+					luminance = Math.max(luminance, entryLuminance[i]);
+				}
+			}
+
+			// Behaviors may light up any block whose cell neighbours their cells.
+			float reach = deferred ? Float.POSITIVE_INFINITY : (float) getEffectiveRadius(luminance);
+			slotReachesSquared[slot] = deferred ? Integer.MAX_VALUE : LightFalloff.reachSquared(luminance);
+			SpatialLookupSnapshot.markLitSections(litSections, slotCells[slot], deferred ? 15 : luminance, reach);
+		}
+		largeBehaviors.markLitSections(litSections);
+
+		return new SpatialLookupSnapshot.CellTable(
+				slotCells, startIndices, slotReachesSquared, cellCount, maxProbeLength, totalProbeLength,
+				count, entryX, entryY, entryZ, entryLuminance,
+				entryBehaviors, entryOwners, litSections, largeBehaviors
+		);
+	}
+
+	private static int luminanceOrderKey(StagingWriter staging, int index) {
+		return staging.behaviors[index] != null ? 0 : LUMINANCE_ORDER_KEYS - 1 - Mth.clamp(staging.luminance[index], 0, 15);
 	}
 
 	@VisibleForTesting
 	public boolean hasEntriesAt(int cellX, int cellY, int cellZ) {
-		int key = this.hashCell(cellX, cellY, cellZ);
-		return this.startIndices[key] < this.startIndices.length;
+		return this.currentSnapshot().hasEntriesAt(cellX, cellY, cellZ);
 	}
 
 	@VisibleForTesting
 	public int getEntryCountAt(int cellX, int cellY, int cellZ) {
-		int key = this.hashCell(cellX, cellY, cellZ);
-		int startIndex = this.startIndices[key];
-		int count = 0;
-		for (int i = startIndex; i < this.spatialLookupEntries.length; i++) {
-			SpatialLookupEntry entry = this.spatialLookupEntries[i];
-			if (entry == null || entry.cellKey() != key) break;
-
-			count++;
-		}
-		return count;
+		return this.currentSnapshot().getEntryCountAt(cellX, cellY, cellZ);
 	}
 
 	@VisibleForTesting
@@ -269,17 +1231,273 @@ public final class DynamicLightingEngine implements CellHasher {
 		return this.lastEntryCount;
 	}
 
-	static {
-		CELL_OFFSETS = new Vec3i[27];
-		int i = 0;
+	/**
+	 * Represents a small direct-mapped cache of query results, owned by a single thread.
+	 * <p>
+	 * Each slot holds the light level of a position for a given snapshot generation,
+	 * publishing a new snapshot implicitly invalidates every slot.
+	 */
+	private final class QueryCache {
+		private static final int SLOTS = 256;
+
+		private final long[] positions = new long[SLOTS];
+		private final long[] generations = new long[SLOTS];
+		private final int[] levels = new int[SLOTS];
 
-		for (int x = -1; x <= 1; x++) {
-			for (int y = -1; y <= 1; y++) {
-				for (int z = -1; z <= 1; z++) {
-					CELL_OFFSETS[i] = new Vec3i(x, y, z);
-					i++;
-				}
+		int getDynamicLightmapLevel(SpatialLookupSnapshot snapshot, int x, int y, int z) {
+			long packedPos = BlockPos.asLong(x, y, z);
+			long generation = snapshot.generation();
+			int slot = (int) HashCommon.mix(packedPos) & (SLOTS - 1);
+
+			if (this.positions[slot] == packedPos && this.generations[slot] == generation) {
+				queryCacheHits.increment();
+				return this.levels[slot];
 			}
+
+			queryCacheMisses.increment();
+			int level = snapshot.getDynamicLightmapLevel(x, y, z);
+			this.positions[slot] = packedPos;
+			this.generations[slot] = generation;
+			this.levels[slot] = level;
+			return level;
+		}
+	}
+
+	/**
+	 * Represents a full build running in the background.
+	 *
+	 * @param staging the staging area owned by the build
+	 * @param previous the snapshot published when the build started, which is replaced by the build
+	 * @param capacity the number of slots of the new cell table once the build is finished, or {@code -1} if it failed
+	 */
+	private record PendingBuild(StagingWriter staging, SpatialLookupSnapshot previous, CompletableFuture<Integer> capacity) {}
+
+	/**
+	 * Represents the staging area in which light sources write their entries, unsorted.
+	 * <p>
+	 * The cell of each entry is kept instead of its slot so the staged entries stay valid if the spatial lookup is resized.
+	 */
+	private static final class StagingWriter implements SpatialLookupWriter {
+		private long[] cells = new long[DEFAULT_LIGHT_SOURCES];
+		private int[] keys = new int[DEFAULT_LIGHT_SOURCES];
+		private int[] order = new int[DEFAULT_LIGHT_SOURCES];
+		private int[] owners = new int[DEFAULT_LIGHT_SOURCES];
+		/**
+		 * The coordinates of the point lights, in sixteenths of a block.
+		 *
+		 * @see LightFalloff
+		 */
+		private int[] x = new int[DEFAULT_LIGHT_SOURCES];
+		private int[] y = new int[DEFAULT_LIGHT_SOURCES];
+		private int[] z = new int[DEFAULT_LIGHT_SOURCES];
+		private byte[] luminance = new byte[DEFAULT_LIGHT_SOURCES];
+		private @Nullable DynamicLightBehavior[] behaviors = new DynamicLightBehavior[DEFAULT_LIGHT_SOURCES];
+		private int count;
+		private int[] largeBoundingBoxes = new int[16 * 6];
+		private DynamicLightBehavior[] largeBehaviors = new DynamicLightBehavior[16];
+		private int[] largeOwners = new int[16];
+		private int largeCount;
+		/**
+		 * The index of the light source currently writing its entries.
+		 */
+		private int owner;
+
+		void reset() {
+			this.count = 0;
+			this.largeCount = 0;
+			this.owner = 0;
+		}
+
+		/**
+		 * Grows the arrays of this staging area so they can hold at least the given number of entries.
+		 *
+		 * @param length the minimum length of the arrays
+		 */
+		void ensureCapacity(int length) {
+			if (this.cells.length >= length) return;
+
+			int newLength = HashCommon.nextPowerOfTwo(length);
+			this.cells = Arrays.copyOf(this.cells, newLength);
+			this.keys = Arrays.copyOf(this.keys, newLength);
+			this.order = Arrays.copyOf(this.order, newLength);
+			this.owners = Arrays.copyOf(this.owners, newLength);
+			this.x = Arrays.copyOf(this.x, newLength);
+			this.y = Arrays.copyOf(this.y, newLength);
+			this.z = Arrays.copyOf(this.z, newLength);
+			this.luminance = Arrays.copyOf(this.luminance, newLength);
+			this.behaviors = Arrays.copyOf(this.behaviors, newLength);
+		}
+
+		/**
+		 * Copies the entries of this staging area into the given staging area at the given offset.
+		 *
+		 * @param target the staging area to copy into, which must be large enough
+		 * @param offset the index at which to copy the entries
+		 */
+		void copyTo(StagingWriter target, int offset) {
+			System.arraycopy(this.cells, 0, target.cells, offset, this.count);
+			System.arraycopy(this.owners, 0, target.owners, offset, this.count);
+			System.arraycopy(this.x, 0, target.x, offset, this.count);
+			System.arraycopy(this.y, 0, target.y, offset, this.count);
+			System.arraycopy(this.z, 0, target.z, offset, this.count);
+			System.arraycopy(this.luminance, 0, target.luminance, offset, this.count);
+			System.arraycopy(this.behaviors, 0, target.behaviors, offset, this.count);
+		}
+
+		/**
+		 * Appends the large behaviors of this staging area to the given staging area.
+		 *
+		 * @param target the staging area to append to
+		 */
+		void copyLargeEntriesTo(StagingWriter target) {
+			for (int i = 0; i < this.largeCount; i++) {
+				target.owner = this.largeOwners[i];
+				target.addLargeDeferredEntry(this.largeBehaviors[i], new DynamicLightBehavior.BoundingBox(
+						this.largeBoundingBoxes[i * 6], this.largeBoundingBoxes[i * 6 + 1], this.largeBoundingBoxes[i * 6 + 2],
+						this.largeBoundingBoxes[i * 6 + 3], this.largeBoundingBoxes[i * 6 + 4], this.largeBoundingBoxes[i * 6 + 5]
+				));
+			}
+		}
+
+		/**
+		 * Shrinks the arrays of this staging area to the given length if they are larger, clearing it.
+		 *
+		 * @param length the new length of the arrays
+		 */
+		void trim(int length) {
+			this.clear();
+
+			if (this.cells.length <= length) return;
+
+			this.cells = new long[length];
+			this.keys = new int[length];
+			this.order = new int[length];
+			this.owners = new int[length];
+			this.x = new int[length];
+			this.y = new int[length];
+			this.z = new int[length];
+			this.luminance = new byte[length];
+			this.behaviors = new DynamicLightBehavior[length];
+		}
+
+		/**
+		 * Resets this staging area, and clears the references to behaviors it held.
+		 */
+		void clear() {
+			Arrays.fill(this.behaviors, 0, this.count, null);
+			Arrays.fill(this.largeBehaviors, 0, this.largeCount, null);
+			this.reset();
+		}
+
+		/**
+		 * Removes the entries written by the given owners, keeping the other entries in order.
+		 *
+		 * @param removed the owners whose entries to remove
+		 */
+		void removeOwners(IntSet removed) {
+			if (removed.isEmpty()) return;
+
+			int kept = 0;
+			for (int i = 0; i < this.count; i++) {
+				if (removed.contains(this.owners[i])) continue;
+
+				this.cells[kept] = this.cells[i];
+				this.owners[kept] = this.owners[i];
+				this.x[kept] = this.x[i];
+				this.y[kept] = this.y[i];
+				this.z[kept] = this.z[i];
+				this.luminance[kept] = this.luminance[i];
+				this.behaviors[kept] = this.behaviors[i];
+				kept++;
+			}
+			Arrays.fill(this.behaviors, kept, this.count, null);
+			this.count = kept;
+
+			int keptLarge = 0;
+			for (int i = 0; i < this.largeCount; i++) {
+				if (removed.contains(this.largeOwners[i])) continue;
+
+				System.arraycopy(this.largeBoundingBoxes, i * 6, this.largeBoundingBoxes, keptLarge * 6, 6);
+				this.largeBehaviors[keptLarge] = this.largeBehaviors[i];
+				this.largeOwners[keptLarge] = this.largeOwners[i];
+				keptLarge++;
+			}
+			Arrays.fill(this.largeBehaviors, keptLarge, this.largeCount, null);
+			this.largeCount = keptLarge;
+		}
+
+		private int next(long cell) {
+			int index = this.count++;
+
+			if (index == this.cells.length) {
+				int newLength = this.cells.length * 2;
+				this.cells = Arrays.copyOf(this.cells, newLength);
+				this.keys = Arrays.copyOf(this.keys, newLength);
+				this.order = Arrays.copyOf(this.order, newLength);
+				this.owners = Arrays.copyOf(this.owners, newLength);
+				this.x = Arrays.copyOf(this.x, newLength);
+				this.y = Arrays.copyOf(this.y, newLength);
+				this.z = Arrays.copyOf(this.z, newLength);
+				this.luminance = Arrays.copyOf(this.luminance, newLength);
+				this.behaviors = Arrays.copyOf(this.behaviors, newLength);
+			}
+
+			this.cells[index] = cell;
+			this.owners[index] = this.owner;
+			return index;
+		}
+
+		@Override
+		public void addEntry(double x, double y, double z, int luminance) {
+			int fixedX = LightFalloff.toFixed(x);
+			int fixedY = LightFalloff.toFixed(y);
+			int fixedZ = LightFalloff.toFixed(z);
+
+			// The cell is computed from the stored coordinates so the light always lies within its cell.
+			int index = this.next(BlockPos.asLong(
+					positionToCell(LightFalloff.toBlock(fixedX)),
+					positionToCell(LightFalloff.toBlock(fixedY)),
+					positionToCell(LightFalloff.toBlock(fixedZ))
+			));
+
+			this.x[index] = fixedX;
+			this.y[index] = fixedY;
+			this.z[index] = fixedZ;
+			this.luminance[index] = (byte) Mth.clamp(luminance, 0, 15);
+			this.behaviors[index] = null;
+		}
+
+		@Override
+		public void addDeferredEntry(int cellX, int cellY, int cellZ, DynamicLightBehavior behavior) {
+			int index = this.next(BlockPos.asLong(cellX, cellY, cellZ));
+
+			this.luminance[index] = 0;
+			this.behaviors[index] = behavior;
+		}
+
+		@Override
+		public void addLargeDeferredEntry(DynamicLightBehavior behavior, DynamicLightBehavior.BoundingBox boundingBox) {
+			int index = this.largeCount++;
+
+			if (index == this.largeBehaviors.length) {
+				int newLength = this.largeBehaviors.length * 2;
+				this.largeBoundingBoxes = Arrays.copyOf(this.largeBoundingBoxes, newLength * 6);
+				this.largeBehaviors = Arrays.copyOf(this.largeBehaviors, newLength);
+				this.largeOwners = Arrays.copyOf(this.largeOwners, newLength);
+			}
+
+			this.largeBoundingBoxes[index * 6] = boundingBox.startX();
+			this.largeBoundingBoxes[index * 6 + 1] = boundingBox.startY();
+			this.largeBoundingBoxes[index * 6 + 2] = boundingBox.startZ();
+			this.largeBoundingBoxes[index * 6 + 3] = boundingBox.endX();
+			this.largeBoundingBoxes[index * 6 + 4] = boundingBox.endY();
+			this.largeBoundingBoxes[index * 6 + 5] = boundingBox.endZ();
+			this.largeBehaviors[index] = behavior;
+			this.largeOwners[index] = this.owner;
+		}
+
+		LargeBehaviorIndex buildLargeBehaviorIndex() {
+			return LargeBehaviorIndex.build(this.largeCount, this.largeBoundingBoxes, this.largeBehaviors, this.largeOwners);
 		}
 	}
 }
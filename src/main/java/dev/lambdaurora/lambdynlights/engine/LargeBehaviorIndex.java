@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import dev.lambdaurora.lambdynlights.api.behavior.DynamicLightBehavior;
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Represents an immutable index of the dynamic light behaviors spanning a large area.
+ * <p>
+ * Instead of copying such behaviors into every cell they span, which would evaluate them once per neighbouring cell
+ * holding a copy, they are kept in an interval index: the behaviors are sorted by the minimum X-coordinate
+ * of their neighbourhood, and a query only looks at the behaviors whose minimum X-coordinate is within the widest
+ * neighbourhood from the queried position.
+ * <p>
+ * The neighbourhood of a behavior is made of the blocks whose cell neighbours a cell the behavior spans,
+ * which are the blocks it would light up if it was copied into its cells.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+final class LargeBehaviorIndex {
+	static final LargeBehaviorIndex EMPTY = new LargeBehaviorIndex(new int[0], new DynamicLightBehavior[0], new int[0], 0);
+	/**
+	 * The neighbourhood of the behavior followed by its bounding box.
+	 */
+	static final int BOX_STRIDE = 12;
+	/**
+	 * The distance past which a behavior is assumed to not light up anything, with one block of slack
+	 * to account for the different conventions of behaviors.
+	 */
+	private static final double REJECT_DISTANCE_SQUARED = (DynamicLightingEngine.MAX_RADIUS + 1) * (DynamicLightingEngine.MAX_RADIUS + 1);
+	/**
+	 * The number of whole blocks past the bounding box of a behavior which are not rejected along a single axis.
+	 */
+	private static final int REJECT_BLOCKS = (int) (DynamicLightingEngine.MAX_RADIUS + 1);
+
+	final int[] boxes;
+	final DynamicLightBehavior[] behaviors;
+	private final int[] owners;
+	private final int maxWidth;
+
+	private LargeBehaviorIndex(int[] boxes, DynamicLightBehavior[] behaviors, int[] owners, int maxWidth) {
+		this.boxes = boxes;
+		this.behaviors = behaviors;
+		this.owners = owners;
+		this.maxWidth = maxWidth;
+	}
+
+	/**
+	 * Builds a new index from the given behaviors.
+	 *
+	 * @param count the number of behaviors
+	 * @param boundingBoxes the bounding boxes of the behaviors, 6 values per behavior
+	 * @param behaviors the behaviors
+	 * @param owners the index of the light source which owns each behavior
+	 * @return the new index
+	 */
+	static LargeBehaviorIndex build(int count, int[] boundingBoxes, DynamicLightBehavior[] behaviors, int[] owners) {
+		if (count == 0) {
+			return EMPTY;
+		}
+
+		var boxes = new int[count * BOX_STRIDE];
+		var sortedBehaviors = new DynamicLightBehavior[count];
+		var sortedOwners = new int[count];
+		int maxWidth = 0;
+
+		for (int i = 0; i < count; i++) {
+			int box = i * BOX_STRIDE;
+			int boundingBox = i * 6;
+
+			for (int axis = 0; axis < 3; axis++) {
+				int start = boundingBoxes[boundingBox + axis];
+				int end = boundingBoxes[boundingBox + 3 + axis];
+
+				boxes[box + axis] = (DynamicLightingEngine.positionToCell(start) - 1) * DynamicLightingEngine.CELL_SIZE;
+				boxes[box + 3 + axis] = (DynamicLightingEngine.positionToCell(end) + 2) * DynamicLightingEngine.CELL_SIZE - 1;
+				boxes[box + 6 + axis] = start;
+				boxes[box + 9 + axis] = end;
+			}
+
+			maxWidth = Math.max(maxWidth, boxes[box + 3] - boxes[box]);
+			sortedBehaviors[i] = behaviors[i];
+			sortedOwners[i] = owners[i];
+		}
+
+		Arrays.quickSort(0, count,
+				(a, b) -> Integer.compare(boxes[a * BOX_STRIDE], boxes[b * BOX_STRIDE]),
+				(a, b) -> {
+					for (int j = 0; j < BOX_STRIDE; j++) {
+						int tmp = boxes[a * BOX_STRIDE + j];
+						boxes[a * BOX_STRIDE + j] = boxes[b * BOX_STRIDE + j];
+						boxes[b * BOX_STRIDE + j] = tmp;
+					}
+
+					var behavior = sortedBehaviors[a];
+					sortedBehaviors[a] = sortedBehaviors[b];
+					sortedBehaviors[b] = behavior;
+
+					int owner = sortedOwners[a];
+					sortedOwners[a] = sortedOwners[b];
+					sortedOwners[b] = owner;
+				}
+		);
+
+		return new LargeBehaviorIndex(boxes, sortedBehaviors, sortedOwners, maxWidth);
+	}
+
+	/**
+	 * {@return the number of behaviors in this index}
+	 */
+	int size() {
+		return this.behaviors.length;
+	}
+
+	/**
+	 * {@return {@code true} if the behavior at the given index is removed, or {@code false} otherwise}
+	 *
+	 * @param index the index of the behavior
+	 * @param removedOwners the light sources which are removed, or {@code null} if none are
+	 */
+	boolean isRemoved(int index, boolean @Nullable [] removedOwners) {
+		return removedOwners != null && removedOwners[this.owners[index]];
+	}
+
+	/**
+	 * Returns the dynamic light level at the specified position, evaluating each behavior reaching it once.
+	 *
+	 * @param pos the position
+	 * @param removedOwners the light sources which are removed, or {@code null} if none are
+	 * @param result the light level found so far, in sixteenths of a light level
+	 * @return the maximum between the given light level and the light level of the behaviors, in sixteenths of a light level
+	 */
+	int getDynamicLightmapLevel(BlockPos pos, boolean @Nullable [] removedOwners, int result) {
+		int x = pos.getX();
+		int y = pos.getY();
+		int z = pos.getZ();
+
+		// Binary search the first behavior whose neighbourhood starts after the position.
+		int low = 0;
+		int high = this.behaviors.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (this.boxes[middle * BOX_STRIDE] <= x) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		int minX = x - this.maxWidth;
+		for (int i = low - 1; i >= 0; i--) {
+			int box = i * BOX_STRIDE;
+			if (this.boxes[box] < minX) break;
+
+			if (x > this.boxes[box + 3]
+					|| y < this.boxes[box + 1] || y > this.boxes[box + 4]
+					|| z < this.boxes[box + 2] || z > this.boxes[box + 5]
+					|| this.isRemoved(i, removedOwners)) {
+				continue;
+			}
+
+			// Cheap distance reject against the bounding box before evaluating the behavior.
+			double dx = distanceToRange(x, this.boxes[box + 6], this.boxes[box + 9]);
+			double dy = distanceToRange(y, this.boxes[box + 7], this.boxes[box + 10]);
+			double dz = distanceToRange(z, this.boxes[box + 8], this.boxes[box + 11]);
+			if (dx * dx + dy * dy + dz * dz > REJECT_DISTANCE_SQUARED) continue;
+
+			int light = LightFalloff.toFixedLevel(this.behaviors[i].lightAtPos(pos, 15. / DynamicLightingEngine.MAX_RADIUS));
+			if (light > result) {
+				result = light;
+			}
+		}
+
+		return result;
+	}
+
+	private static double distanceToRange(int value, int start, int end) {
+		return Math.max(Math.max(start - value, value - (end + 1)), 0);
+	}
+
+	/**
+	 * {@return the minimum block coordinate along the given axis which the given behavior may light up}
+	 *
+	 * @param index the index of the behavior
+	 * @param axis the axis, {@code 0} for X, {@code 1} for Y and {@code 2} for Z
+	 */
+	int reachStart(int index, int axis) {
+		int box = index * BOX_STRIDE;
+		return Math.max(this.boxes[box + axis], this.boxes[box + 6 + axis] - REJECT_BLOCKS);
+	}
+
+	/**
+	 * {@return the maximum block coordinate along the given axis which the given behavior may light up}
+	 *
+	 * @param index the index of the behavior
+	 * @param axis the axis, {@code 0} for X, {@code 1} for Y and {@code 2} for Z
+	 */
+	int reachEnd(int index, int axis) {
+		int box = index * BOX_STRIDE;
+		return Math.min(this.boxes[box + 3 + axis], this.boxes[box + 9 + axis] + REJECT_BLOCKS + 1);
+	}
+
+	/**
+	 * Marks the chunk sections which can be reached by the behaviors of this index.
+	 *
+	 * @param litSections the maximum luminance which can reach each section
+	 */
+	void markLitSections(Long2ByteMap litSections) {
+		for (int i = 0; i < this.behaviors.length; i++) {
+			int maxSectionX = SectionPos.blockToSectionCoord(this.reachEnd(i, 0));
+			int maxSectionY = SectionPos.blockToSectionCoord(this.reachEnd(i, 1));
+			int maxSectionZ = SectionPos.blockToSectionCoord(this.reachEnd(i, 2));
+
+			for (int x = SectionPos.blockToSectionCoord(this.reachStart(i, 0)); x <= maxSectionX; x++) {
+				for (int y = SectionPos.blockToSectionCoord(this.reachStart(i, 1)); y <= maxSectionY; y++) {
+					for (int z = SectionPos.blockToSectionCoord(this.reachStart(i, 2)); z <= maxSectionZ; z++) {
+						litSections.put(SectionPos.asLong(x, y, z), (byte) 15);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import dev.lambdaurora.lambdynlights.engine.source.ClusteredDynamicLightSource;
+import dev.lambdaurora.lambdynlights.engine.source.DeferredDynamicLightSource;
+import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSource;
+import dev.lambdaurora.lambdynlights.engine.source.EntityDynamicLightSource;
+import net.minecraft.client.Camera;
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import org.joml.FrustumIntersection;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Provides the selection of the most important light sources when there are more light sources than the light budget.
+ * <p>
+ * The importance of a light source grows with its luminance, as the area it lights up grows with the square of its luminance,
+ * and decreases with the squared distance to the camera, like the area it covers on screen.
+ * Light sources which may be on screen are favoured, and the local player always comes first.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class LightBudget {
+	/**
+	 * The factor applied to the importance of the light sources which may light up something on screen.
+	 */
+	private static final float ON_SCREEN_FACTOR = 4.f;
+	/**
+	 * The factor applied to the importance of the active light sources when selecting the light sources to keep active.
+	 * <p>
+	 * A parked light source only takes the place of an active one if it is clearly more important,
+	 * so light sources ranking close to the cut do not get parked and woken up again every tick.
+	 */
+	public static final float WAKE_MARGIN = 1.5f;
+
+	private LightBudget() {
+		throw new UnsupportedOperationException("LightBudget only contains static definitions.");
+	}
+
+	/**
+	 * Computes the importance score of the given light source.
+	 *
+	 * @param lightSource the light source
+	 * @param camera the camera
+	 * @param player the local player, or {@code null} if there is none
+	 * @return the importance score of the light source, the higher the more important
+	 */
+	public static float importance(DynamicLightSource lightSource, Camera camera, @Nullable Entity player) {
+		if (lightSource == player) {
+			return Float.POSITIVE_INFINITY;
+		}
+
+		var cameraPos = camera.position();
+		double x;
+		double y;
+		double z;
+		int luminance;
+
+		if (lightSource instanceof EntityDynamicLightSource entity) {
+			x = entity.getDynamicLightX();
+			y = entity.getDynamicLightY();
+			z = entity.getDynamicLightZ();
+			luminance = entity.getLuminance();
+		} else if (lightSource instanceof DeferredDynamicLightSource deferred) {
+			// The closest point of the bounding box, as behaviors may be large like beacon beams.
+			var boundingBox = deferred.behavior().getBoundingBox();
+			x = Mth.clamp(cameraPos.x, boundingBox.startX(), boundingBox.endX() + 1);
+			y = Mth.clamp(cameraPos.y, boundingBox.startY(), boundingBox.endY() + 1);
+			z = Mth.clamp(cameraPos.z, boundingBox.startZ(), boundingBox.endZ() + 1);
+			luminance = 15;
+		} else if (lightSource instanceof ClusteredDynamicLightSource cluster) {
+			long cell = cluster.cell();
+			x = (BlockPos.getX(cell) + .5) * DynamicLightingEngine.CELL_SIZE;
+			y = (BlockPos.getY(cell) + .5) * DynamicLightingEngine.CELL_SIZE;
+			z = (BlockPos.getZ(cell) + .5) * DynamicLightingEngine.CELL_SIZE;
+			luminance = cluster.getMaxLuminance();
+		} else {
+			x = cameraPos.x;
+			y = cameraPos.y;
+			z = cameraPos.z;
+			luminance = 15;
+		}
+
+		double dx = x - cameraPos.x;
+		double dy = y - cameraPos.y;
+		double dz = z - cameraPos.z;
+		float score = (float) (luminance * luminance / (1. + dx * dx + dy * dy + dz * dz));
+
+		double radius = DynamicLightingEngine.getEffectiveRadius(luminance);
+		int hitResult = camera.getCullFrustum().cubeInFrustum(
+				x - radius, y - radius, z - radius,
+				x + radius, y + radius, z + radius
+		);
+		if (hitResult == FrustumIntersection.INTERSECT || hitResult == FrustumIntersection.INSIDE) {
+			score *= ON_SCREEN_FACTOR;
+		}
+
+		return score;
+	}
+
+	/**
+	 * Partially sorts the given light sources so that the most important ones come first.
+	 * <p>
+	 * This is a quickselect, which runs in linear time on average: the light sources are only partitioned
+	 * around the {@code k}-th most important one, the order within each side is unspecified.
+	 *
+	 * @param lightSources the light sources
+	 * @param scores the importance score of each light source
+	 * @param count the number of light sources
+	 * @param k the number of light sources to select
+	 */
+	public static void selectMostImportant(DynamicLightSource[] lightSources, float[] scores, int count, int k) {
+		if (k <= 0 || k >= count) return;
+
+		int target = k - 1;
+		int left = 0;
+		int right = count - 1;
+
+		while (left < right) {
+			float pivot = medianOfThree(scores[left], scores[(left + right) >>> 1], scores[right]);
+			int i = left;
+			int j = right;
+
+			// Hoare partition in descending order.
+			while (i <= j) {
+				while (scores[i] > pivot) i++;
+				while (scores[j] < pivot) j--;
+
+				if (i <= j) {
+					swap(lightSources, scores, i, j);
+					i++;
+					j--;
+				}
+			}
+
+			if (target <= j) {
+				right = j;
+			} else if (target >= i) {
+				left = i;
+			} else {
+				// The target is within the light sources equal to the pivot.
+				return;
+			}
+		}
+	}
+
+	private static float medianOfThree(float a, float b, float c) {
+		return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+	}
+
+	private static void swap(DynamicLightSource[] lightSources, float[] scores, int a, int b) {
+		var lightSource = lightSources[a];
+		lightSources[a] = lightSources[b];
+		lightSources[b] = lightSource;
+
+		float score = scores[a];
+		scores[a] = scores[b];
+		scores[b] = score;
+	}
+}
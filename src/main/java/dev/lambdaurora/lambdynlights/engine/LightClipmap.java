@@ -0,0 +1,547 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import dev.lambdaurora.lambdynlights.api.behavior.DynamicLightBehavior;
+import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupWriter;
+import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSource;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Mth;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collection;
+
+/**
+ * Represents a camera-centred volume of dynamic light levels, which answers queries within it with a single array read.
+ * <p>
+ * The volume is a ring buffer: a block is always stored at the same index regardless of where the volume is,
+ * so when the camera moves only the slabs of blocks entering the volume have to be filled.
+ * <p>
+ * Each voxel stores its light level, in sixteenths like in the lightmap.
+ * When a light source moves, the light of its new point lights is splatted by raising the voxels they reach,
+ * while the voxels its old point lights reached are recomputed from the spatial lookup,
+ * which removes their light whatever else lights up those voxels.
+ * <p>
+ * The light of a {@link DynamicLightBehavior} cannot be splatted as it is only known at its current state,
+ * the blocks it may reach are recomputed from the spatial lookup instead.
+ * <p>
+ * The volume is double-buffered: each update is applied on the client thread to the buffer which is not published,
+ * which is then published along with the area it covers through a volatile field.
+ * Querying threads therefore only ever see the volume of a whole update.
+ * Before an update, the voxels changed by the previous update are copied from the published buffer
+ * to bring the other buffer up to date.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class LightClipmap implements SpatialLookupWriter {
+	private static final int SIZE_XZ_BITS = 7;
+	private static final int SIZE_Y_BITS = 6;
+	/**
+	 * The size of the volume along the X and Z axes, in blocks.
+	 */
+	public static final int SIZE_XZ = 1 << SIZE_XZ_BITS;
+	/**
+	 * The size of the volume along the Y-axis, in blocks.
+	 */
+	public static final int SIZE_Y = 1 << SIZE_Y_BITS;
+	private static final int VOLUME = SIZE_XZ * SIZE_Y * SIZE_XZ;
+	/**
+	 * The number of whole blocks past the bounding box of a large behavior which may be lit up by it.
+	 */
+	private static final int BEHAVIOR_REACH = (int) (DynamicLightingEngine.MAX_RADIUS + 1);
+	/**
+	 * The number of changed voxels past which the whole buffer is copied instead.
+	 */
+	private static final int MAX_TRACKED_CHANGES = VOLUME / 16;
+
+	/**
+	 * The light levels being updated, only accessed from the client thread.
+	 */
+	private byte[] levels = new byte[VOLUME];
+	/**
+	 * The light levels of the latest published volume.
+	 */
+	private byte[] publishedLevels = new byte[VOLUME];
+	private final IntArrayList changedIndices = new IntArrayList();
+	private final IntArrayList previousChangedIndices = new IntArrayList();
+	private boolean changedAll = true;
+	private boolean previousChangedAll = true;
+	private final IntArrayList regionsToRecompute = new IntArrayList();
+	private final byte[] scratch = new byte[SectionLightCache.SECTION_VOLUME];
+	private final Reference2ObjectOpenHashMap<DynamicLightSource, Splat> splats = new Reference2ObjectOpenHashMap<>();
+	/**
+	 * The latest published volume, or {@code null} if the volume cannot be queried.
+	 */
+	private volatile @Nullable View view;
+	private boolean needsReset = true;
+	private int lastRecomputedVoxels;
+
+	// The entries of the light source currently being split.
+	private final IntArrayList writtenPoints = new IntArrayList();
+	private final IntArrayList writtenRegions = new IntArrayList();
+
+	/**
+	 * Returns the dynamic light level at the specified position if it is within the volume.
+	 * <p>
+	 * This method may be called from any thread.
+	 *
+	 * @param x the X block coordinate
+	 * @param y the Y block coordinate
+	 * @param z the Z block coordinate
+	 * @return the dynamic light level at the specified position in sixteenths of a light level,
+	 * or {@code -1} if the position is not within the volume
+	 */
+	public int getDynamicLightmapLevel(int x, int y, int z) {
+		var view = this.view;
+
+		if (view == null || !view.window.contains(x, y, z)) {
+			return -1;
+		}
+
+		return view.levels[index(x, y, z)] & 0xff;
+	}
+
+	/**
+	 * {@return the number of light sources whose light is splatted into the volume}
+	 */
+	public int getSplattedSourceCount() {
+		return this.splats.size();
+	}
+
+	/**
+	 * {@return the number of voxels recomputed from the spatial lookup during the last update}
+	 */
+	public int getLastRecomputedVoxels() {
+		return this.lastRecomputedVoxels;
+	}
+
+	/**
+	 * Invalidates the volume, it will be entirely recomputed on the next update.
+	 */
+	public void invalidate() {
+		this.needsReset = true;
+		this.view = null;
+	}
+
+	/**
+	 * Updates the volume from the given light sources.
+	 *
+	 * @param snapshot the snapshot of the spatial lookup holding the current state of the light sources
+	 * @param lightSources the current light sources
+	 * @param changedSources the light sources which were added, removed or changed since the last update,
+	 * or {@code null} if they are unknown in which case the whole volume is recomputed
+	 * @param cameraX the X block coordinate of the camera
+	 * @param cameraY the Y block coordinate of the camera
+	 * @param cameraZ the Z block coordinate of the camera
+	 */
+	public void update(
+			SpatialLookupSnapshot snapshot,
+			Collection<? extends DynamicLightSource> lightSources, @Nullable Collection<DynamicLightSource> changedSources,
+			int cameraX, int cameraY, int cameraZ
+	) {
+		this.lastRecomputedVoxels = 0;
+
+		var view = this.view;
+		if (view == null || changedSources == null || this.needsReset) {
+			this.reset(snapshot, lightSources, cameraX, cameraY, cameraZ);
+			return;
+		}
+
+		this.catchUp();
+		var window = view.window;
+
+		// Splat first, the recomputations from the spatial lookup have the final say over the regions they cover.
+		for (var lightSource : changedSources) {
+			var previous = this.splats.remove(lightSource);
+
+			if (previous != null) {
+				this.addPointRegions(previous.points);
+				this.regionsToRecompute.addElements(this.regionsToRecompute.size(), previous.regions);
+			}
+
+			if (lightSources.contains(lightSource)) {
+				var splat = this.split(lightSource);
+				this.splats.put(lightSource, splat);
+				this.splatPoints(window, splat.points);
+				this.regionsToRecompute.addElements(this.regionsToRecompute.size(), splat.regions);
+			}
+		}
+
+		for (int i = 0; i < this.regionsToRecompute.size(); i += 6) {
+			this.recomputeRegion(snapshot, window,
+					this.regionsToRecompute.getInt(i), this.regionsToRecompute.getInt(i + 1), this.regionsToRecompute.getInt(i + 2),
+					this.regionsToRecompute.getInt(i + 3), this.regionsToRecompute.getInt(i + 4), this.regionsToRecompute.getInt(i + 5)
+			);
+		}
+		this.regionsToRecompute.clear();
+
+		this.publish(this.recentre(snapshot, window, cameraX, cameraY, cameraZ));
+	}
+
+	private void reset(
+			SpatialLookupSnapshot snapshot, Collection<? extends DynamicLightSource> lightSources,
+			int cameraX, int cameraY, int cameraZ
+	) {
+		// Queries fall back to the spatial lookup while the volume is refilled.
+		this.view = null;
+		this.needsReset = false;
+
+		this.splats.clear();
+		for (var lightSource : lightSources) {
+			this.splats.put(lightSource, this.split(lightSource));
+		}
+
+		// The whole volume is recomputed, the buffer does not have to be brought up to date first.
+		var window = Window.around(cameraX, cameraY, cameraZ);
+		this.markAllChanged();
+		this.regionsToRecompute.clear();
+		this.recomputeRegion(snapshot, window, window.minX, window.minY, window.minZ, window.maxX, window.maxY, window.maxZ);
+
+		this.publish(window);
+	}
+
+	/**
+	 * Brings the light levels being updated up to date with the published ones,
+	 * by copying the voxels changed by the previous update.
+	 */
+	private void catchUp() {
+		if (this.previousChangedAll) {
+			System.arraycopy(this.publishedLevels, 0, this.levels, 0, VOLUME);
+		} else {
+			for (int i = 0; i < this.previousChangedIndices.size(); i++) {
+				int index = this.previousChangedIndices.getInt(i);
+				this.levels[index] = this.publishedLevels[index];
+			}
+		}
+	}
+
+	/**
+	 * Publishes the light levels being updated to the querying threads, and swaps the buffers.
+	 *
+	 * @param window the area covered by the volume
+	 */
+	private void publish(Window window) {
+		var levels = this.levels;
+		this.levels = this.publishedLevels;
+		this.publishedLevels = levels;
+		this.view = new View(window, levels);
+
+		this.previousChangedIndices.clear();
+		this.previousChangedIndices.addAll(this.changedIndices);
+		this.previousChangedAll = this.changedAll;
+		this.changedIndices.clear();
+		this.changedAll = false;
+	}
+
+	/**
+	 * Moves the volume so that it is centred on the camera, filling the slabs of blocks entering it.
+	 *
+	 * @return the new area covered by the volume
+	 */
+	private Window recentre(SpatialLookupSnapshot snapshot, Window window, int cameraX, int cameraY, int cameraZ) {
+		var target = Window.around(cameraX, cameraY, cameraZ);
+
+		if (target.minX == window.minX && target.minY == window.minY && target.minZ == window.minZ) {
+			return window;
+		}
+
+		if (Math.abs(target.minX - window.minX) >= SIZE_XZ
+				|| Math.abs(target.minY - window.minY) >= SIZE_Y
+				|| Math.abs(target.minZ - window.minZ) >= SIZE_XZ) {
+			// Nothing is kept, for example after a teleportation.
+			this.markAllChanged();
+			this.recomputeRegion(snapshot, target, target.minX, target.minY, target.minZ, target.maxX, target.maxY, target.maxZ);
+			return target;
+		}
+
+		// The area covered by both volumes.
+		var kept = new Window(
+				Math.max(window.minX, target.minX), Math.max(window.minY, target.minY), Math.max(window.minZ, target.minZ),
+				Math.min(window.maxX, target.maxX), Math.min(window.maxY, target.maxY), Math.min(window.maxZ, target.maxZ)
+		);
+
+		// The blocks entering the volume are outside the previous volume along at least one axis.
+		if (target.minX != window.minX) {
+			this.recomputeRegion(snapshot, target,
+					enteringStart(window.minX, target.minX, SIZE_XZ), target.minY, target.minZ,
+					enteringEnd(window.minX, target.minX, SIZE_XZ), target.maxY, target.maxZ
+			);
+		}
+		if (target.minY != window.minY) {
+			this.recomputeRegion(snapshot, target,
+					kept.minX, enteringStart(window.minY, target.minY, SIZE_Y), target.minZ,
+					kept.maxX, enteringEnd(window.minY, target.minY, SIZE_Y), target.maxZ
+			);
+		}
+		if (target.minZ != window.minZ) {
+			this.recomputeRegion(snapshot, target,
+					kept.minX, kept.minY, enteringStart(window.minZ, target.minZ, SIZE_XZ),
+					kept.maxX, kept.maxY, enteringEnd(window.minZ, target.minZ, SIZE_XZ)
+			);
+		}
+
+		return target;
+	}
+
+	private static int enteringStart(int previousMin, int min, int size) {
+		return min < previousMin ? min : previousMin + size;
+	}
+
+	private static int enteringEnd(int previousMin, int min, int size) {
+		return min < previousMin ? previousMin - 1 : min + size - 1;
+	}
+
+	/**
+	 * Splats the light of the given point lights into the volume.
+	 *
+	 * @param window the area covered by the volume
+	 * @param points the point lights, 4 values per light: the coordinates in sixteenths of a block and the luminance
+	 */
+	private void splatPoints(Window window, int[] points) {
+		for (int i = 0; i < points.length; i += 4) {
+			int x = points[i];
+			int y = points[i + 1];
+			int z = points[i + 2];
+			int luminance = points[i + 3];
+
+			int radius = pointRadius(luminance);
+			int blockX = LightFalloff.toBlock(x);
+			int blockY = LightFalloff.toBlock(y);
+			int blockZ = LightFalloff.toBlock(z);
+
+			int minX = Math.max(blockX - radius, window.minX);
+			int minY = Math.max(blockY - radius, window.minY);
+			int minZ = Math.max(blockZ - radius, window.minZ);
+			int maxX = Math.min(blockX + radius, window.maxX);
+			int maxY = Math.min(blockY + radius, window.maxY);
+			int maxZ = Math.min(blockZ + radius, window.maxZ);
+
+			for (int currentY = minY; currentY <= maxY; currentY++) {
+				int dy = LightFalloff.blockCenter(currentY) - y;
+
+				for (int currentZ = minZ; currentZ <= maxZ; currentZ++) {
+					int dz = LightFalloff.blockCenter(currentZ) - z;
+
+					for (int currentX = minX; currentX <= maxX; currentX++) {
+						int light = LightFalloff.lightAt(LightFalloff.blockCenter(currentX) - x, dy, dz, luminance);
+						int index = index(currentX, currentY, currentZ);
+
+						if (light > (this.levels[index] & 0xff)) {
+							this.set(index, light);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the blocks the given point lights may reach to the regions to recompute from the spatial lookup.
+	 *
+	 * @param points the point lights, 4 values per light: the coordinates in sixteenths of a block and the luminance
+	 */
+	private void addPointRegions(int[] points) {
+		for (int i = 0; i < points.length; i += 4) {
+			int radius = pointRadius(points[i + 3]);
+			int blockX = LightFalloff.toBlock(points[i]);
+			int blockY = LightFalloff.toBlock(points[i + 1]);
+			int blockZ = LightFalloff.toBlock(points[i + 2]);
+
+			this.regionsToRecompute.add(blockX - radius);
+			this.regionsToRecompute.add(blockY - radius);
+			this.regionsToRecompute.add(blockZ - radius);
+			this.regionsToRecompute.add(blockX + radius);
+			this.regionsToRecompute.add(blockY + radius);
+			this.regionsToRecompute.add(blockZ + radius);
+		}
+	}
+
+	/**
+	 * {@return the distance in whole blocks from its block past which a point light of the given luminance cannot light anything}
+	 *
+	 * @param luminance the luminance of the point light
+	 */
+	private static int pointRadius(int luminance) {
+		return Mth.ceil(DynamicLightingEngine.getEffectiveRadius(luminance)) + 1;
+	}
+
+	/**
+	 * Recomputes the given region of the volume from the spatial lookup, chunk section by chunk section
+	 * so that the sections no dynamic light can reach are skipped.
+	 *
+	 * @param snapshot the snapshot of the spatial lookup
+	 * @param window the area covered by the volume, to which the region is clipped
+	 */
+	private void recomputeRegion(
+			SpatialLookupSnapshot snapshot, Window window,
+			int minX, int minY, int minZ, int maxX, int maxY, int maxZ
+	) {
+		minX = Math.max(minX, window.minX);
+		minY = Math.max(minY, window.minY);
+		minZ = Math.max(minZ, window.minZ);
+		maxX = Math.min(maxX, window.maxX);
+		maxY = Math.min(maxY, window.maxY);
+		maxZ = Math.min(maxZ, window.maxZ);
+		if (minX > maxX || minY > maxY || minZ > maxZ) return;
+
+		for (int sectionX = SectionPos.blockToSectionCoord(minX); sectionX <= SectionPos.blockToSectionCoord(maxX); sectionX++) {
+			for (int sectionY = SectionPos.blockToSectionCoord(minY); sectionY <= SectionPos.blockToSectionCoord(maxY); sectionY++) {
+				for (int sectionZ = SectionPos.blockToSectionCoord(minZ); sectionZ <= SectionPos.blockToSectionCoord(maxZ); sectionZ++) {
+					int startX = Math.max(minX, SectionPos.sectionToBlockCoord(sectionX));
+					int startY = Math.max(minY, SectionPos.sectionToBlockCoord(sectionY));
+					int startZ = Math.max(minZ, SectionPos.sectionToBlockCoord(sectionZ));
+					int endX = Math.min(maxX, SectionPos.sectionToBlockCoord(sectionX, 15));
+					int endY = Math.min(maxY, SectionPos.sectionToBlockCoord(sectionY, 15));
+					int endZ = Math.min(maxZ, SectionPos.sectionToBlockCoord(sectionZ, 15));
+					int sizeX = endX - startX + 1;
+					int sizeY = endY - startY + 1;
+					int sizeZ = endZ - startZ + 1;
+
+					boolean lit = snapshot.getMaxLuminanceAt(SectionPos.asLong(sectionX, sectionY, sectionZ)) != 0
+							&& snapshot.getDynamicLightLevels(startX, startY, startZ, sizeX, sizeY, sizeZ, this.scratch);
+
+					int i = 0;
+					for (int y = startY; y <= endY; y++) {
+						for (int z = startZ; z <= endZ; z++) {
+							for (int x = startX; x <= endX; x++) {
+								this.set(index(x, y, z), lit ? this.scratch[i] & 0xff : 0);
+								i++;
+							}
+						}
+					}
+
+					this.lastRecomputedVoxels += sizeX * sizeY * sizeZ;
+				}
+			}
+		}
+	}
+
+	private void set(int index, int level) {
+		if (this.levels[index] == (byte) level) return;
+
+		this.levels[index] = (byte) level;
+
+		if (!this.changedAll) {
+			if (this.changedIndices.size() < MAX_TRACKED_CHANGES) {
+				this.changedIndices.add(index);
+			} else {
+				// Copying the whole buffer is cheaper past this point.
+				this.markAllChanged();
+			}
+		}
+	}
+
+	private void markAllChanged() {
+		this.changedAll = true;
+		this.changedIndices.clear();
+	}
+
+	/**
+	 * {@return the index of the given block position in the volume}
+	 *
+	 * @param x the X block coordinate
+	 * @param y the Y block coordinate
+	 * @param z the Z block coordinate
+	 */
+	private static int index(int x, int y, int z) {
+		return (y & (SIZE_Y - 1)) << (SIZE_XZ_BITS * 2) | (z & (SIZE_XZ - 1)) << SIZE_XZ_BITS | (x & (SIZE_XZ - 1));
+	}
+
+	/**
+	 * Splits the given light source into its point lights and the regions its behaviors may light up.
+	 *
+	 * @param lightSource the light source
+	 * @return the splat of the light source
+	 */
+	private Splat split(DynamicLightSource lightSource) {
+		this.writtenPoints.clear();
+		this.writtenRegions.clear();
+		lightSource.splitIntoDynamicLightEntries(this);
+		return new Splat(this.writtenPoints.toIntArray(), this.writtenRegions.toIntArray());
+	}
+
+	@Override
+	public void addEntry(double x, double y, double z, int luminance) {
+		if (luminance <= 0) return;
+
+		this.writtenPoints.add(LightFalloff.toFixed(x));
+		this.writtenPoints.add(LightFalloff.toFixed(y));
+		this.writtenPoints.add(LightFalloff.toFixed(z));
+		this.writtenPoints.add(Math.min(luminance, 15));
+	}
+
+	@Override
+	public void addDeferredEntry(int cellX, int cellY, int cellZ, DynamicLightBehavior behavior) {
+		// Like in the spatial lookup, the behavior lights up the blocks whose cell neighbours its cell.
+		this.addRegion(
+				(cellX - 1) * DynamicLightingEngine.CELL_SIZE,
+				(cellY - 1) * DynamicLightingEngine.CELL_SIZE,
+				(cellZ - 1) * DynamicLightingEngine.CELL_SIZE,
+				(cellX + 2) * DynamicLightingEngine.CELL_SIZE - 1,
+				(cellY + 2) * DynamicLightingEngine.CELL_SIZE - 1,
+				(cellZ + 2) * DynamicLightingEngine.CELL_SIZE - 1
+		);
+	}
+
+	@Override
+	public void addLargeDeferredEntry(DynamicLightBehavior behavior, DynamicLightBehavior.BoundingBox boundingBox) {
+		this.addRegion(
+				boundingBox.startX() - BEHAVIOR_REACH, boundingBox.startY() - BEHAVIOR_REACH, boundingBox.startZ() - BEHAVIOR_REACH,
+				boundingBox.endX() + BEHAVIOR_REACH + 1, boundingBox.endY() + BEHAVIOR_REACH + 1, boundingBox.endZ() + BEHAVIOR_REACH + 1
+		);
+	}
+
+	private void addRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		this.writtenRegions.add(minX);
+		this.writtenRegions.add(minY);
+		this.writtenRegions.add(minZ);
+		this.writtenRegions.add(maxX);
+		this.writtenRegions.add(maxY);
+		this.writtenRegions.add(maxZ);
+	}
+
+	/**
+	 * Represents what a light source splatted into the volume.
+	 *
+	 * @param points the point lights, 4 values per light: the coordinates in sixteenths of a block and the luminance
+	 * @param regions the regions its behaviors may light up, 6 inclusive block coordinates per region
+	 */
+	private record Splat(int[] points, int[] regions) {}
+
+	/**
+	 * Represents a published volume.
+	 *
+	 * @param window the area covered by the volume
+	 * @param levels the light levels of the volume, which are never modified while published
+	 */
+	private record View(Window window, byte[] levels) {}
+
+	/**
+	 * Represents the area covered by the volume.
+	 */
+	private record Window(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		static Window around(int x, int y, int z) {
+			int minX = x - SIZE_XZ / 2;
+			int minY = y - SIZE_Y / 2;
+			int minZ = z - SIZE_XZ / 2;
+			return new Window(minX, minY, minZ, minX + SIZE_XZ - 1, minY + SIZE_Y - 1, minZ + SIZE_XZ - 1);
+		}
+
+		boolean contains(int x, int y, int z) {
+			return x >= this.minX && x <= this.maxX
+					&& y >= this.minY && y <= this.maxY
+					&& z >= this.minZ && z <= this.maxZ;
+		}
+	}
+}
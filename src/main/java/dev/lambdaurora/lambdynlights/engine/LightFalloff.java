@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import net.minecraft.util.Mth;
+
+/**
+ * Provides the fixed-point light falloff of point lights.
+ * <p>
+ * Positions are stored in sixteenths of a block, and light levels in sixteenths of a light level like in the lightmap,
+ * which means a light level goes from {@code 0} to {@code 240}.
+ * The attenuation of the light over a distance is precomputed for each squared distance within {@link DynamicLightingEngine#MAX_RADIUS},
+ * which avoids any floating-point math and square root when computing the light of an entry at a position.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class LightFalloff {
+	private static final int PRECISION_BITS = 4;
+	/**
+	 * The number of subdivisions of a block, and of a light level.
+	 */
+	public static final int PRECISION = 1 << PRECISION_BITS;
+	/**
+	 * The maximum light level, in sixteenths of a light level.
+	 */
+	public static final int MAX_LEVEL = 15 * PRECISION;
+	/**
+	 * The attenuation of the light for each squared distance in sixteenths of a block, in sixteenths of a light level.
+	 */
+	private static final byte[] ATTENUATION;
+	/**
+	 * The squared distance in sixteenths of a block from which a light of a given luminance no longer lights up anything.
+	 */
+	private static final int[] REACH_SQUARED = new int[16];
+
+	private LightFalloff() {
+		throw new UnsupportedOperationException("LightFalloff only contains static definitions.");
+	}
+
+	/**
+	 * {@return the given block coordinate in sixteenths of a block}
+	 *
+	 * @param coordinate the coordinate
+	 */
+	public static int toFixed(double coordinate) {
+		return Mth.floor(coordinate * PRECISION + .5);
+	}
+
+	/**
+	 * {@return the block coordinate containing the given coordinate in sixteenths of a block}
+	 *
+	 * @param fixedCoordinate the coordinate in sixteenths of a block
+	 */
+	public static int toBlock(int fixedCoordinate) {
+		return fixedCoordinate >> PRECISION_BITS;
+	}
+
+	/**
+	 * {@return the center of the given block in sixteenths of a block}
+	 *
+	 * @param blockCoordinate the block coordinate
+	 */
+	public static int blockCenter(int blockCoordinate) {
+		return blockCoordinate * PRECISION + PRECISION / 2;
+	}
+
+	/**
+	 * {@return the squared distance in sixteenths of a block from which a light of the given luminance no longer lights up anything}
+	 *
+	 * @param luminance the luminance of the light, from {@code 0} to {@code 15}
+	 */
+	public static int reachSquared(int luminance) {
+		return REACH_SQUARED[luminance];
+	}
+
+	/**
+	 * {@return the attenuation of the light over the given squared distance, in sixteenths of a light level}
+	 *
+	 * @param distanceSquared the squared distance in sixteenths of a block
+	 */
+	public static int attenuation(int distanceSquared) {
+		return distanceSquared < ATTENUATION.length ? ATTENUATION[distanceSquared] & 0xff : MAX_LEVEL;
+	}
+
+	/**
+	 * Returns the light level of a point light at the given offset.
+	 * <p>
+	 * This matches {@link dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupEntry#lightAtPos} truncated to sixteenths of a light level.
+	 *
+	 * @param dx the X offset between the center of the block and the light, in sixteenths of a block
+	 * @param dy the Y offset between the center of the block and the light, in sixteenths of a block
+	 * @param dz the Z offset between the center of the block and the light, in sixteenths of a block
+	 * @param luminance the luminance of the light, from {@code 0} to {@code 15}
+	 * @return the light level in sixteenths of a light level, or {@code 0} if the light does not reach
+	 */
+	public static int lightAt(int dx, int dy, int dz, int luminance) {
+		int distanceSquared = dx * dx + dy * dy + dz * dz;
+
+		if (distanceSquared >= REACH_SQUARED[luminance]) {
+			return 0;
+		}
+
+		return luminance * PRECISION - (ATTENUATION[distanceSquared] & 0xff);
+	}
+
+	/**
+	 * {@return the given light level in sixteenths of a light level}
+	 *
+	 * @param level the light level
+	 */
+	public static int toFixedLevel(double level) {
+		return level <= 0 ? 0 : Math.min((int) (level * PRECISION), MAX_LEVEL);
+	}
+
+	static {
+		int maxDistance = (int) (DynamicLightingEngine.MAX_RADIUS * PRECISION);
+		ATTENUATION = new byte[maxDistance * maxDistance + 1];
+
+		for (int distanceSquared = 0; distanceSquared < ATTENUATION.length; distanceSquared++) {
+			// Same as SpatialLookupEntry.lightAtPos, the truncation of the light level turns into a ceiling of the attenuation.
+			int attenuation = Mth.ceil(Math.sqrt(distanceSquared) / DynamicLightingEngine.MAX_RADIUS * 15.);
+			ATTENUATION[distanceSquared] = (byte) Math.min(attenuation, MAX_LEVEL);
+		}
+
+		for (int luminance = 0; luminance < REACH_SQUARED.length; luminance++) {
+			int reach = 0;
+
+			while (reach < ATTENUATION.length && (ATTENUATION[reach] & 0xff) < luminance * PRECISION) {
+				reach++;
+			}
+
+			REACH_SQUARED[luminance] = reach;
+		}
+	}
+}
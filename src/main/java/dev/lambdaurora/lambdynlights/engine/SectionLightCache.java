@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Represents a cache of the dynamic light levels of whole chunk sections.
+ * <p>
+ * When a chunk section is rebuilt, the dynamic light level of each of its blocks is queried.
+ * Instead of querying the spatial lookup for each block, the light grid of the section is computed all at once
+ * on the first query, and the following queries read from it.
+ * <p>
+ * Grids are keyed by section position and by the generation of the snapshot they were computed from,
+ * they are stored in a fixed-size direct-mapped table which can be safely accessed from chunk meshing threads.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class SectionLightCache {
+	static final int SECTION_VOLUME = 16 * 16 * 16;
+	private static final int SLOTS = 1024;
+
+	private final AtomicReferenceArray<@Nullable Grid> grids = new AtomicReferenceArray<>(SLOTS);
+
+	/**
+	 * Returns the dynamic light level at the specified position, using the light grid of its section.
+	 *
+	 * @param snapshot the snapshot of the spatial lookup to compute the light grid from
+	 * @param pos the position
+	 * @return the dynamic light level at the specified position
+	 */
+	public double getDynamicLightLevel(SpatialLookupSnapshot snapshot, BlockPos pos) {
+		return this.getDynamicLightmapLevel(snapshot, pos.getX(), pos.getY(), pos.getZ()) / (double) LightFalloff.PRECISION;
+	}
+
+	/**
+	 * Returns the dynamic light level at the specified position using the light grid of its section,
+	 * in sixteenths of a light level like the block light in the lightmap.
+	 *
+	 * @param snapshot the snapshot of the spatial lookup to compute the light grid from
+	 * @param x the X block coordinate
+	 * @param y the Y block coordinate
+	 * @param z the Z block coordinate
+	 * @return the dynamic light level at the specified position, in sixteenths of a light level
+	 */
+	public int getDynamicLightmapLevel(SpatialLookupSnapshot snapshot, int x, int y, int z) {
+		int sectionX = SectionPos.blockToSectionCoord(x);
+		int sectionY = SectionPos.blockToSectionCoord(y);
+		int sectionZ = SectionPos.blockToSectionCoord(z);
+		long section = SectionPos.asLong(sectionX, sectionY, sectionZ);
+		int slot = slot(section);
+
+		var grid = this.grids.get(slot);
+		if (grid == null || grid.section != section || grid.generation != snapshot.generation()) {
+			var levels = snapshot.computeSectionGrid(sectionX, sectionY, sectionZ);
+			grid = new Grid(section, snapshot.generation(), levels);
+			this.grids.set(slot, grid);
+		}
+
+		if (grid.levels == null) {
+			return 0;
+		}
+
+		return grid.levels[index(x, y, z)] & 0xff;
+	}
+
+	/**
+	 * Drops the light grid of the given chunk section.
+	 *
+	 * @param section the packed section position
+	 */
+	public void invalidate(long section) {
+		int slot = slot(section);
+		var grid = this.grids.get(slot);
+
+		if (grid != null && grid.section == section) {
+			this.grids.compareAndSet(slot, grid, null);
+		}
+	}
+
+	/**
+	 * Drops every light grid.
+	 */
+	public void clear() {
+		for (int i = 0; i < SLOTS; i++) {
+			this.grids.set(i, null);
+		}
+	}
+
+	private static int slot(long section) {
+		return (int) HashCommon.mix(section) & (SLOTS - 1);
+	}
+
+	/**
+	 * {@return the index of the given block position in a section light grid}
+	 *
+	 * @param x the X block coordinate
+	 * @param y the Y block coordinate
+	 * @param z the Z block coordinate
+	 */
+	static int index(int x, int y, int z) {
+		return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+	}
+
+	/**
+	 * Represents the light grid of a chunk section.
+	 *
+	 * @param section the packed section position
+	 * @param generation the generation of the snapshot the grid was computed from
+	 * @param levels the light levels in sixteenths, or {@code null} if no dynamic light reaches the section
+	 */
+	private record Grid(long section, long generation, byte @Nullable [] levels) {}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Represents the recycler of the arrays of the snapshots of the spatial lookup,
+ * so that computing a new snapshot each tick does not allocate in steady state.
+ * <p>
+ * Each thread querying a snapshot pins its generation for the duration of the query.
+ * When a new snapshot is published, the parts of the previous snapshot it does not share are retired
+ * along with the generation of the previous snapshot, the last one holding them.
+ * A retired part is reclaimed once every pinned generation is newer, no query can read it anymore.
+ * <p>
+ * Only the pinning may happen on any thread, everything else must happen on the client thread.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+final class SnapshotRecycler {
+	private static final long UNPINNED = Long.MAX_VALUE;
+	/**
+	 * The number of reclaimed parts of each kind kept for reuse, the others are left to the garbage collector.
+	 */
+	private static final int MAX_FREE_PARTS = 2;
+
+	private final List<Reader> readers = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<Reader> reader = ThreadLocal.withInitial(() -> {
+		var reader = new Reader();
+		this.readers.add(reader);
+		return reader;
+	});
+	private final ArrayDeque<Retired> retired = new ArrayDeque<>();
+	private final List<SpatialLookupSnapshot.CellTable> freeEntries = new ArrayList<>();
+	private final List<SpatialLookupSnapshot.CellTable> freeOverflows = new ArrayList<>();
+	private final List<boolean[]> freeRemovedOwners = new ArrayList<>();
+
+	/**
+	 * {@return the reader of the current thread}
+	 */
+	Reader reader() {
+		return this.reader.get();
+	}
+
+	/**
+	 * Retires the parts of the given previous snapshot which are not shared with the newly published snapshot.
+	 *
+	 * @param previous the previously published snapshot
+	 * @param published the newly published snapshot
+	 */
+	void retire(SpatialLookupSnapshot previous, SpatialLookupSnapshot published) {
+		long generation = previous.generation();
+
+		if (previous.entries() != published.entries()) {
+			this.retired.add(new Retired(generation, previous.entries(), null, null));
+		}
+		if (previous.overflow() != published.overflow() && previous.overflow() != SpatialLookupSnapshot.CellTable.EMPTY) {
+			this.retired.add(new Retired(generation, null, previous.overflow(), null));
+		}
+		if (previous.removedOwners() != published.removedOwners() && previous.removedOwners().length != 0) {
+			this.retired.add(new Retired(generation, null, null, previous.removedOwners()));
+		}
+	}
+
+	/**
+	 * Reclaims the retired parts which no query can read anymore.
+	 */
+	void reclaim() {
+		long oldestPinned = UNPINNED;
+		for (var reader : this.readers) {
+			oldestPinned = Math.min(oldestPinned, reader.pinnedGeneration);
+		}
+
+		// Parts are retired in order of generation.
+		while (!this.retired.isEmpty() && this.retired.peekFirst().generation() < oldestPinned) {
+			var part = this.retired.pollFirst();
+
+			if (part.entries() != null) {
+				free(this.freeEntries, part.entries());
+			} else if (part.overflow() != null) {
+				free(this.freeOverflows, part.overflow());
+			} else if (part.removedOwners() != null) {
+				free(this.freeRemovedOwners, part.removedOwners());
+			}
+		}
+	}
+
+	/**
+	 * {@return a reclaimed cell table of sorted entries whose arrays can be reused, or {@code null} if there is none}
+	 */
+	@Nullable SpatialLookupSnapshot.CellTable takeEntries() {
+		return this.freeEntries.isEmpty() ? null : this.freeEntries.removeLast();
+	}
+
+	/**
+	 * {@return a reclaimed overflow cell table whose arrays can be reused, or {@code null} if there is none}
+	 */
+	@Nullable SpatialLookupSnapshot.CellTable takeOverflow() {
+		return this.freeOverflows.isEmpty() ? null : this.freeOverflows.removeLast();
+	}
+
+	/**
+	 * {@return a cleared array of removed owners of at least the given length, reclaimed if possible}
+	 *
+	 * @param length the minimum length of the array
+	 */
+	boolean[] takeRemovedOwners(int length) {
+		for (int i = this.freeRemovedOwners.size() - 1; i >= 0; i--) {
+			var removedOwners = this.freeRemovedOwners.get(i);
+
+			if (removedOwners.length >= length) {
+				this.freeRemovedOwners.remove(i);
+				Arrays.fill(removedOwners, false);
+				return removedOwners;
+			}
+		}
+
+		return new boolean[length];
+	}
+
+	/**
+	 * Drops every retired and reclaimed part.
+	 */
+	void clear() {
+		this.retired.clear();
+		this.freeEntries.clear();
+		this.freeOverflows.clear();
+		this.freeRemovedOwners.clear();
+	}
+
+	private static <T> void free(List<T> free, T part) {
+		if (free.size() < MAX_FREE_PARTS) {
+			free.add(part);
+		}
+	}
+
+	/**
+	 * Represents a thread which queries snapshots.
+	 */
+	static final class Reader {
+		private volatile long pinnedGeneration = UNPINNED;
+		private int depth;
+
+		/**
+		 * Pins the generation of the given snapshot if this reader is not already querying one.
+		 * <p>
+		 * The caller must then check that the snapshot is still published, otherwise it may have been reclaimed meanwhile.
+		 *
+		 * @param snapshot the snapshot to query
+		 * @return {@code true} if the snapshot has been pinned, or {@code false} if an older snapshot is already pinned
+		 */
+		boolean pin(SpatialLookupSnapshot snapshot) {
+			if (this.depth++ != 0) return false;
+
+			this.pinnedGeneration = snapshot.generation();
+			return true;
+		}
+
+		/**
+		 * Pins the generation of the given snapshot again, as the previously pinned one is no longer published.
+		 *
+		 * @param snapshot the published snapshot
+		 */
+		void repin(SpatialLookupSnapshot snapshot) {
+			this.pinnedGeneration = snapshot.generation();
+		}
+
+		/**
+		 * Unpins the snapshot once the query is finished.
+		 */
+		void unpin() {
+			if (--this.depth == 0) {
+				this.pinnedGeneration = UNPINNED;
+			}
+		}
+	}
+
+	private record Retired(
+			long generation,
+			SpatialLookupSnapshot.@Nullable CellTable entries,
+			SpatialLookupSnapshot.@Nullable CellTable overflow,
+			boolean @Nullable [] removedOwners
+	) {}
+}
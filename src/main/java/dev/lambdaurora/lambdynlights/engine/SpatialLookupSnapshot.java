@@ -0,0 +1,895 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import dev.lambdaurora.lambdynlights.api.behavior.DynamicLightBehavior;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.core.Vec3i;
+import net.minecraft.util.Mth;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Represents an immutable snapshot of the spatial lookup of the dynamic lighting engine.
+ * <p>
+ * A snapshot is published by the engine at the end of each tick in which the spatial lookup changed,
+ * it is never modified once published which allows any thread to query it without locking.
+ * Its arrays are only recycled once it is no longer published and no query holds it anymore, see {@link SnapshotRecycler}.
+ * <p>
+ * The sorted entries are grouped by cell in a {@link CellTable}.
+ * The entries of the light sources which changed since the last full build are stored in a separate overflow,
+ * their sorted entries being marked as removed.
+ * The overflow is a cell table of its own, so a query only looks up the neighbouring cells in both tables
+ * whatever the size of the overflow.
+ * <p>
+ * The maximum luminance which can reach each chunk section is also stored, which allows to answer queries
+ * in sections that no dynamic light can reach without looking up any cell.
+ * <p>
+ * The behaviors spanning a large area are not stored in the cells, but in a {@link LargeBehaviorIndex}.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class SpatialLookupSnapshot {
+	private static final Vec3i[] CELL_OFFSETS;
+	private static final int CELL_SIZE_FIXED = DynamicLightingEngine.CELL_SIZE * LightFalloff.PRECISION;
+
+	private final long generation;
+	private final CellTable entries;
+	private final boolean[] removedOwners;
+	private final CellTable overflow;
+
+	SpatialLookupSnapshot(long generation, CellTable entries, boolean[] removedOwners, CellTable overflow) {
+		this.generation = generation;
+		this.entries = entries;
+		this.removedOwners = removedOwners;
+		this.overflow = overflow;
+	}
+
+	/**
+	 * Creates an empty snapshot.
+	 *
+	 * @param generation the generation of the snapshot
+	 * @param capacity the number of slots of the cell table, must be a power of two
+	 * @return the empty snapshot
+	 */
+	static SpatialLookupSnapshot empty(long generation, int capacity) {
+		return new SpatialLookupSnapshot(generation, CellTable.empty(capacity), new boolean[0], CellTable.EMPTY);
+	}
+
+	/**
+	 * Creates a new snapshot sharing the sorted entries of this snapshot, with a different set of removed owners and overflow.
+	 *
+	 * @return the new snapshot
+	 */
+	SpatialLookupSnapshot withOverflow(long generation, boolean[] removedOwners, CellTable overflow) {
+		return new SpatialLookupSnapshot(generation, this.entries, removedOwners, overflow);
+	}
+
+	/**
+	 * {@return the generation of this snapshot, which increases each time a new snapshot is published}
+	 */
+	public long generation() {
+		return this.generation;
+	}
+
+	/**
+	 * {@return the number of sorted entries in this snapshot}
+	 */
+	public int entryCount() {
+		return this.entries.entryCount();
+	}
+
+	/**
+	 * {@return the number of entries in the overflow of this snapshot}
+	 */
+	public int overflowCount() {
+		return this.overflow.entryCount();
+	}
+
+	/**
+	 * {@return the number of slots of the cell table of this snapshot}
+	 */
+	public int capacity() {
+		return this.entries.capacity();
+	}
+
+	/**
+	 * {@return the number of distinct cells holding sorted entries}
+	 */
+	public int cellCount() {
+		return this.entries.cellCount;
+	}
+
+	/**
+	 * {@return the load factor of the cell table}
+	 */
+	public float loadFactor() {
+		return (float) this.entries.cellCount / this.entries.capacity();
+	}
+
+	/**
+	 * {@return the average distance between the home slot of a cell and its actual slot in the cell table}
+	 */
+	public float averageProbeLength() {
+		return this.entries.cellCount == 0 ? 0.f : (float) this.entries.totalProbeLength / this.entries.cellCount;
+	}
+
+	/**
+	 * {@return the maximum distance between the home slot of a cell and its actual slot in the cell table}
+	 */
+	public int maxProbeLength() {
+		return this.entries.maxProbeLength;
+	}
+
+	/**
+	 * {@return the number of behaviors spanning a large area in this snapshot, including the overflow}
+	 */
+	public int largeBehaviorCount() {
+		return this.entries.largeBehaviors.size() + this.overflow.largeBehaviors.size();
+	}
+
+	boolean[] removedOwners() {
+		return this.removedOwners;
+	}
+
+	CellTable entries() {
+		return this.entries;
+	}
+
+	CellTable overflow() {
+		return this.overflow;
+	}
+
+	/**
+	 * {@return the number of chunk sections which can be reached by dynamic lights}
+	 */
+	public int litSectionCount() {
+		return this.entries.litSections.size();
+	}
+
+	/**
+	 * {@return the maximum luminance which can reach the given chunk section, or {@code 0} if no dynamic light can reach it}
+	 *
+	 * @param section the packed section position
+	 */
+	public int getMaxLuminanceAt(long section) {
+		return Math.max(this.entries.litSections.get(section), this.overflow.litSections.get(section));
+	}
+
+	/**
+	 * Marks the chunk sections which can be reached by the entries of the given cell.
+	 * <p>
+	 * The reached sections are those containing blocks whose cell neighbours the given cell,
+	 * and which are within reach of the lights of the cell.
+	 *
+	 * @param litSections the maximum luminance which can reach each section
+	 * @param cell the packed cell coordinates
+	 * @param luminance the maximum luminance of the entries of the cell
+	 * @param reach the effective radius of the lights of the cell, or infinity if unbounded
+	 */
+	static void markLitSections(Long2ByteMap litSections, long cell, int luminance, float reach) {
+		if (luminance <= 0) return;
+
+		int minSectionX = SectionPos.blockToSectionCoord(minReachedBlock(BlockPos.getX(cell), reach));
+		int minSectionY = SectionPos.blockToSectionCoord(minReachedBlock(BlockPos.getY(cell), reach));
+		int minSectionZ = SectionPos.blockToSectionCoord(minReachedBlock(BlockPos.getZ(cell), reach));
+		int maxSectionX = SectionPos.blockToSectionCoord(maxReachedBlock(BlockPos.getX(cell), reach));
+		int maxSectionY = SectionPos.blockToSectionCoord(maxReachedBlock(BlockPos.getY(cell), reach));
+		int maxSectionZ = SectionPos.blockToSectionCoord(maxReachedBlock(BlockPos.getZ(cell), reach));
+
+		for (int x = minSectionX; x <= maxSectionX; x++) {
+			for (int y = minSectionY; y <= maxSectionY; y++) {
+				for (int z = minSectionZ; z <= maxSectionZ; z++) {
+					long section = SectionPos.asLong(x, y, z);
+
+					if (luminance > litSections.get(section)) {
+						litSections.put(section, (byte) luminance);
+					}
+				}
+			}
+		}
+	}
+
+	private static int minReachedBlock(int cell, float reach) {
+		int neighbourhoodStart = (cell - 1) * DynamicLightingEngine.CELL_SIZE;
+
+		if (Float.isFinite(reach)) {
+			// A light within the cell reaches a block if the center of the block is closer than its reach.
+			return Math.max(neighbourhoodStart, Mth.floor(cell * DynamicLightingEngine.CELL_SIZE - .5 - reach));
+		}
+
+		return neighbourhoodStart;
+	}
+
+	private static int maxReachedBlock(int cell, float reach) {
+		int neighbourhoodEnd = (cell + 2) * DynamicLightingEngine.CELL_SIZE - 1;
+
+		if (Float.isFinite(reach)) {
+			return Math.min(neighbourhoodEnd, Mth.ceil((cell + 1) * DynamicLightingEngine.CELL_SIZE - .5 + reach));
+		}
+
+		return neighbourhoodEnd;
+	}
+
+	/**
+	 * {@return the squared distance in sixteenths of a block between the given point and the given cell}
+	 *
+	 * @param x the X-coordinate of the point, in sixteenths of a block
+	 * @param y the Y-coordinate of the point, in sixteenths of a block
+	 * @param z the Z-coordinate of the point, in sixteenths of a block
+	 */
+	private static int distanceSquaredToCell(int x, int y, int z, int cellX, int cellY, int cellZ) {
+		int dx = distanceToRange(x, cellX * CELL_SIZE_FIXED);
+		int dy = distanceToRange(y, cellY * CELL_SIZE_FIXED);
+		int dz = distanceToRange(z, cellZ * CELL_SIZE_FIXED);
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static int distanceToRange(int value, int start) {
+		return Math.max(Math.max(start - value, value - (start + CELL_SIZE_FIXED)), 0);
+	}
+
+	/**
+	 * Hashes the given cell coordinates.
+	 *
+	 * @param cellX the cell X-coordinate
+	 * @param cellY the cell Y-coordinate
+	 * @param cellZ the cell Z-coordinate
+	 * @return the home slot of the cell in the cell table
+	 */
+	public int hashCell(int cellX, int cellY, int cellZ) {
+		return homeSlot(BlockPos.asLong(cellX, cellY, cellZ), this.entries.capacity() - 1);
+	}
+
+	/**
+	 * {@return the slot at which a cell should be stored in the cell table if there is no collision}
+	 *
+	 * @param cell the packed cell coordinates
+	 * @param mask the mask of the cell table, which is its capacity minus one
+	 */
+	static int homeSlot(long cell, int mask) {
+		return (int) HashCommon.mix(cell) & mask;
+	}
+
+	/**
+	 * Returns the dynamic light level at the specified position.
+	 *
+	 * @param pos the position
+	 * @return the dynamic light level at the specified position
+	 * @see #getDynamicLightmapLevel(int, int, int)
+	 */
+	public double getDynamicLightLevel(BlockPos pos) {
+		return this.getDynamicLightmapLevel(pos.getX(), pos.getY(), pos.getZ(), pos) / (double) LightFalloff.PRECISION;
+	}
+
+	/**
+	 * Returns the dynamic light level at the specified position, in sixteenths of a light level from {@code 0} to {@code 240}
+	 * like the block light in the lightmap.
+	 * <p>
+	 * The cells are looked up from the closest to the farthest, and the entries of a cell are looked up
+	 * until their luminance minus the attenuation over the distance to the cell cannot exceed the current light level.
+	 * The query stops as soon as the maximum light level is reached.
+	 *
+	 * @param x the X block coordinate
+	 * @param y the Y block coordinate
+	 * @param z the Z block coordinate
+	 * @return the dynamic light level at the specified position, in sixteenths of a light level
+	 * @see LightFalloff
+	 */
+	public int getDynamicLightmapLevel(int x, int y, int z) {
+		return this.getDynamicLightmapLevel(x, y, z, null);
+	}
+
+	private int getDynamicLightmapLevel(int x, int y, int z, @Nullable BlockPos pos) {
+		int result = this.entries.getDynamicLightmapLevel(x, y, z, pos, this.removedOwners, 0);
+		if (result >= LightFalloff.MAX_LEVEL) {
+			return LightFalloff.MAX_LEVEL;
+		}
+
+		result = this.overflow.getDynamicLightmapLevel(x, y, z, pos, null, result);
+
+		if (this.entries.largeBehaviors.size() != 0 || this.overflow.largeBehaviors.size() != 0) {
+			if (pos == null) pos = new BlockPos(x, y, z);
+			result = this.entries.largeBehaviors.getDynamicLightmapLevel(pos, this.removedOwners, result);
+			result = this.overflow.largeBehaviors.getDynamicLightmapLevel(pos, null, result);
+		}
+
+		return Math.min(result, LightFalloff.MAX_LEVEL);
+	}
+
+	/**
+	 * Computes the dynamic light levels of every block of the given box at once.
+	 * <p>
+	 * Instead of looking up the 27 neighbouring cells of each block, the cells around the box are looked up once,
+	 * and the light of each of their entries is spread onto the blocks of the box it reaches.
+	 * An entry only lights the blocks whose cell neighbours its own cell, like in {@link #getDynamicLightLevel(BlockPos)},
+	 * which makes both give the same light levels.
+	 * The light levels are multiples of a sixteenth of a light level, like the block light in the lightmap.
+	 *
+	 * @param minX the minimum X block coordinate of the box
+	 * @param minY the minimum Y block coordinate of the box
+	 * @param minZ the minimum Z block coordinate of the box
+	 * @param sizeX the size of the box along the X-axis
+	 * @param sizeY the size of the box along the Y-axis
+	 * @param sizeZ the size of the box along the Z-axis
+	 * @param levels the light levels to fill, indexed by {@code ((y - minY) * sizeZ + (z - minZ)) * sizeX + (x - minX)}
+	 * @return {@code true} if any dynamic light reaches the box, or {@code false} otherwise
+	 */
+	public boolean getDynamicLightLevels(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, float[] levels) {
+		return this.computeLightBox(new FloatLightBox(minX, minY, minZ, sizeX, sizeY, sizeZ, levels));
+	}
+
+	/**
+	 * Computes the dynamic light levels of every block of the given box at once, in sixteenths of a light level.
+	 * <p>
+	 * Each light level is stored as an unsigned byte from {@code 0} to {@link LightFalloff#MAX_LEVEL},
+	 * it must be read with {@code levels[i] & 0xff} as the levels of {@code 8} and above are negative bytes.
+	 *
+	 * @param minX the minimum X block coordinate of the box
+	 * @param minY the minimum Y block coordinate of the box
+	 * @param minZ the minimum Z block coordinate of the box
+	 * @param sizeX the size of the box along the X-axis
+	 * @param sizeY the size of the box along the Y-axis
+	 * @param sizeZ the size of the box along the Z-axis
+	 * @param levels the light levels to fill, indexed by {@code ((y - minY) * sizeZ + (z - minZ)) * sizeX + (x - minX)}
+	 * @return {@code true} if any dynamic light reaches the box, or {@code false} otherwise
+	 * @see #getDynamicLightLevels(int, int, int, int, int, int, float[])
+	 */
+	public boolean getDynamicLightLevels(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, byte[] levels) {
+		return this.computeLightBox(new ByteLightBox(minX, minY, minZ, sizeX, sizeY, sizeZ, levels));
+	}
+
+	private boolean computeLightBox(LightBox box) {
+		this.entries.spread(box, this.removedOwners);
+		this.overflow.spread(box, null);
+
+		box.addLargeBehaviors(this.entries.largeBehaviors, this.removedOwners);
+		box.addLargeBehaviors(this.overflow.largeBehaviors, null);
+
+		box.spreadBehaviors();
+		return box.lit;
+	}
+
+	/**
+	 * Computes the dynamic light levels of every block of the given chunk section at once.
+	 *
+	 * @param sectionX the section X-coordinate
+	 * @param sectionY the section Y-coordinate
+	 * @param sectionZ the section Z-coordinate
+	 * @return the light levels in sixteenths indexed by {@link SectionLightCache#index(int, int, int)},
+	 * or {@code null} if no dynamic light reaches the section
+	 * @see #getDynamicLightLevels(int, int, int, int, int, int, byte[])
+	 */
+	byte @Nullable [] computeSectionGrid(int sectionX, int sectionY, int sectionZ) {
+		var levels = new byte[SectionLightCache.SECTION_VOLUME];
+		boolean lit = this.getDynamicLightLevels(
+				SectionPos.sectionToBlockCoord(sectionX),
+				SectionPos.sectionToBlockCoord(sectionY),
+				SectionPos.sectionToBlockCoord(sectionZ),
+				16, 16, 16,
+				levels
+		);
+
+		return lit ? levels : null;
+	}
+
+	/**
+	 * {@return {@code true} if the given cell has sorted entries, or {@code false} otherwise}
+	 *
+	 * @param cellX the cell X-coordinate
+	 * @param cellY the cell Y-coordinate
+	 * @param cellZ the cell Z-coordinate
+	 */
+	public boolean hasEntriesAt(int cellX, int cellY, int cellZ) {
+		return this.entries.findSlot(BlockPos.asLong(cellX, cellY, cellZ)) != -1;
+	}
+
+	/**
+	 * {@return the number of sorted entries of the given cell}
+	 *
+	 * @param cellX the cell X-coordinate
+	 * @param cellY the cell Y-coordinate
+	 * @param cellZ the cell Z-coordinate
+	 */
+	public int getEntryCountAt(int cellX, int cellY, int cellZ) {
+		int slot = this.entries.findSlot(BlockPos.asLong(cellX, cellY, cellZ));
+		return slot == -1 ? 0 : this.entries.startIndices[slot + 1] - this.entries.startIndices[slot];
+	}
+
+	/**
+	 * Represents entries grouped by cell using an open-addressing table keyed by the packed cell coordinates,
+	 * which is probed linearly.
+	 * <p>
+	 * The entries of the cell in slot {@code k} are stored between {@code startIndices[k]} inclusive
+	 * and {@code startIndices[k + 1]} exclusive.
+	 * As each occupied slot holds at least one entry, a slot with no entries is an empty slot.
+	 * The entries of each cell are ordered by decreasing luminance, behaviors first.
+	 */
+	static final class CellTable {
+		/**
+		 * The table without any entry, with a single empty slot.
+		 */
+		static final CellTable EMPTY = empty(1);
+
+		// The arrays are read by the engine to recycle them into a new cell table.
+		final long[] slotCells;
+		final int[] startIndices;
+		/**
+		 * The squared reach in sixteenths of a block of the brightest light of each slot,
+		 * queries skip the cells which cannot reach them.
+		 */
+		final int[] slotReachesSquared;
+		private final int cellCount;
+		private final int maxProbeLength;
+		private final long totalProbeLength;
+		/**
+		 * The number of entries, the entry arrays may be longer as they are recycled.
+		 */
+		private final int entryCount;
+		/**
+		 * The coordinates of the point lights, in sixteenths of a block.
+		 *
+		 * @see LightFalloff
+		 */
+		final int[] entryX;
+		final int[] entryY;
+		final int[] entryZ;
+		final byte[] entryLuminance;
+		final @Nullable DynamicLightBehavior[] entryBehaviors;
+		final int[] entryOwners;
+		final Long2ByteMap litSections;
+		private final LargeBehaviorIndex largeBehaviors;
+
+		CellTable(
+				long[] slotCells, int[] startIndices, int[] slotReachesSquared, int cellCount, int maxProbeLength, long totalProbeLength,
+				int entryCount, int[] entryX, int[] entryY, int[] entryZ, byte[] entryLuminance,
+				@Nullable DynamicLightBehavior[] entryBehaviors, int[] entryOwners,
+				Long2ByteMap litSections, LargeBehaviorIndex largeBehaviors
+		) {
+			this.slotCells = slotCells;
+			this.startIndices = startIndices;
+			this.slotReachesSquared = slotReachesSquared;
+			this.cellCount = cellCount;
+			this.maxProbeLength = maxProbeLength;
+			this.totalProbeLength = totalProbeLength;
+			this.entryCount = entryCount;
+			this.entryX = entryX;
+			this.entryY = entryY;
+			this.entryZ = entryZ;
+			this.entryLuminance = entryLuminance;
+			this.entryBehaviors = entryBehaviors;
+			this.entryOwners = entryOwners;
+			this.litSections = litSections;
+			this.largeBehaviors = largeBehaviors;
+		}
+
+		/**
+		 * Creates an empty cell table.
+		 *
+		 * @param capacity the number of slots of the cell table, must be a power of two
+		 * @return the empty cell table
+		 */
+		static CellTable empty(int capacity) {
+			return new CellTable(
+					new long[capacity], new int[capacity + 1], new int[capacity], 0, 0, 0,
+					0, new int[0], new int[0], new int[0], new byte[0],
+					new DynamicLightBehavior[0], new int[0], new Long2ByteOpenHashMap(), LargeBehaviorIndex.EMPTY
+			);
+		}
+
+		int capacity() {
+			return this.slotCells.length;
+		}
+
+		int entryCount() {
+			return this.entryCount;
+		}
+
+		/**
+		 * Finds the slot of the given cell in the cell table.
+		 *
+		 * @param cell the packed cell coordinates
+		 * @return the slot of the cell, or {@code -1} if the cell holds no entries
+		 */
+		int findSlot(long cell) {
+			int mask = this.slotCells.length - 1;
+			int slot = homeSlot(cell, mask);
+
+			while (this.startIndices[slot] != this.startIndices[slot + 1]) {
+				if (this.slotCells[slot] == cell) {
+					return slot;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Returns the dynamic light level at the specified position from the entries of the neighbouring cells.
+		 *
+		 * @param x the X block coordinate
+		 * @param y the Y block coordinate
+		 * @param z the Z block coordinate
+		 * @param pos the position, or {@code null} if it has to be allocated when looking up a behavior
+		 * @param removedOwners the owners whose entries are ignored, or {@code null} if none are
+		 * @param result the light level found so far, in sixteenths of a light level
+		 * @return the maximum of the given light level and of the light levels of the entries, in sixteenths of a light level
+		 */
+		int getDynamicLightmapLevel(int x, int y, int z, @Nullable BlockPos pos, boolean @Nullable [] removedOwners, int result) {
+			if (this.cellCount == 0) return result;
+
+			int cellX = DynamicLightingEngine.positionToCell(x);
+			int cellY = DynamicLightingEngine.positionToCell(y);
+			int cellZ = DynamicLightingEngine.positionToCell(z);
+
+			// The center of the block, see SpatialLookupEntry.lightAtPos.
+			int centerX = LightFalloff.blockCenter(x);
+			int centerY = LightFalloff.blockCenter(y);
+			int centerZ = LightFalloff.blockCenter(z);
+
+			for (var cellOffset : CELL_OFFSETS) {
+				int currentCellX = cellX + cellOffset.getX();
+				int currentCellY = cellY + cellOffset.getY();
+				int currentCellZ = cellZ + cellOffset.getZ();
+
+				int slot = this.findSlot(BlockPos.asLong(currentCellX, currentCellY, currentCellZ));
+				if (slot == -1) continue;
+
+				// Skip the cell if even its brightest light cannot reach the position.
+				int distanceSquared = distanceSquaredToCell(centerX, centerY, centerZ, currentCellX, currentCellY, currentCellZ);
+				if (distanceSquared >= this.slotReachesSquared[slot])
+					continue;
+
+				int attenuation = LightFalloff.attenuation(distanceSquared);
+				int endIndex = this.startIndices[slot + 1];
+
+				for (int i = this.startIndices[slot]; i < endIndex; i++) {
+					var behavior = this.entryBehaviors[i];
+
+					// The following entries are not brighter, so none of them can exceed the current light level either.
+					if (behavior == null && this.entryLuminance[i] * LightFalloff.PRECISION - attenuation <= result) break;
+					if (removedOwners != null && removedOwners[this.entryOwners[i]]) continue;
+
+					int light;
+					if (behavior != null) {
+						if (pos == null) pos = new BlockPos(x, y, z);
+						light = LightFalloff.toFixedLevel(behavior.lightAtPos(pos, 15. / DynamicLightingEngine.MAX_RADIUS));
+					} else {
+						light = LightFalloff.lightAt(
+								centerX - this.entryX[i], centerY - this.entryY[i], centerZ - this.entryZ[i], this.entryLuminance[i]
+						);
+					}
+
+					if (light > result) {
+						result = light;
+					}
+				}
+
+				if (result >= LightFalloff.MAX_LEVEL) {
+					return LightFalloff.MAX_LEVEL;
+				}
+			}
+
+			return result;
+		}
+
+		/**
+		 * Spreads the light of the entries of the cells around the given box onto it.
+		 *
+		 * @param box the box of light levels
+		 * @param removedOwners the owners whose entries are ignored, or {@code null} if none are
+		 */
+		void spread(LightBox box, boolean @Nullable [] removedOwners) {
+			if (this.cellCount == 0) return;
+
+			int minCellX = DynamicLightingEngine.positionToCell(box.minX) - 1;
+			int minCellY = DynamicLightingEngine.positionToCell(box.minY) - 1;
+			int minCellZ = DynamicLightingEngine.positionToCell(box.minZ) - 1;
+			int maxCellX = DynamicLightingEngine.positionToCell(box.maxX) + 1;
+			int maxCellY = DynamicLightingEngine.positionToCell(box.maxY) + 1;
+			int maxCellZ = DynamicLightingEngine.positionToCell(box.maxZ) + 1;
+
+			for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+				for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+					for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+						long cell = BlockPos.asLong(cellX, cellY, cellZ);
+						int slot = this.findSlot(cell);
+						if (slot == -1) continue;
+
+						int endIndex = this.startIndices[slot + 1];
+
+						for (int i = this.startIndices[slot]; i < endIndex; i++) {
+							if (removedOwners != null && removedOwners[this.entryOwners[i]]) continue;
+
+							box.spread(
+									cell, this.entryBehaviors[i], this.entryX[i], this.entryY[i], this.entryZ[i], this.entryLuminance[i]
+							);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Represents a box of light levels being computed.
+	 * <p>
+	 * Light is spread row by row along the X-axis over contiguous light levels,
+	 * with the Y and Z distances hoisted out of the row to keep the inner loop as simple as possible.
+	 * <p>
+	 * The light levels are computed in sixteenths of a light level, and stored by the implementations.
+	 */
+	private static abstract sealed class LightBox permits FloatLightBox, ByteLightBox {
+		private final int minX;
+		private final int minY;
+		private final int minZ;
+		private final int maxX;
+		private final int maxY;
+		private final int maxZ;
+		private final int sizeX;
+		private final int sizeZ;
+		private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		private boolean lit = false;
+		/**
+		 * The behaviors reaching the box, each behavior is evaluated only once per block
+		 * even if it has entries in multiple cells around the box.
+		 */
+		private final List<DynamicLightBehavior> behaviors = new ArrayList<>();
+		private int[] behaviorBoxes = new int[0];
+
+		LightBox(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+			this.minX = minX;
+			this.minY = minY;
+			this.minZ = minZ;
+			this.maxX = minX + sizeX - 1;
+			this.maxY = minY + sizeY - 1;
+			this.maxZ = minZ + sizeZ - 1;
+			this.sizeX = sizeX;
+			this.sizeZ = sizeZ;
+		}
+
+		/**
+		 * {@return the light level of the given block, in sixteenths of a light level}
+		 *
+		 * @param index the index of the block in the box
+		 */
+		abstract int getLevel(int index);
+
+		/**
+		 * Sets the light level of the given block.
+		 *
+		 * @param index the index of the block in the box
+		 * @param level the light level, in sixteenths of a light level
+		 */
+		abstract void setLevel(int index, int level);
+
+		/**
+		 * Spreads the light of the given entry onto the blocks of the box it reaches.
+		 *
+		 * @param cell the packed cell coordinates of the entry
+		 * @param behavior the behavior of the entry, or {@code null} if it is a point light
+		 * @param x the X-coordinate of the point light, in sixteenths of a block
+		 * @param y the Y-coordinate of the point light, in sixteenths of a block
+		 * @param z the Z-coordinate of the point light, in sixteenths of a block
+		 * @param luminance the luminance of the point light
+		 */
+		void spread(long cell, @Nullable DynamicLightBehavior behavior, int x, int y, int z, int luminance) {
+			int cellX = BlockPos.getX(cell);
+			int cellY = BlockPos.getY(cell);
+			int cellZ = BlockPos.getZ(cell);
+
+			// The blocks whose cell neighbours the cell of the entry.
+			int startX = Math.max(this.minX, (cellX - 1) * DynamicLightingEngine.CELL_SIZE);
+			int startY = Math.max(this.minY, (cellY - 1) * DynamicLightingEngine.CELL_SIZE);
+			int startZ = Math.max(this.minZ, (cellZ - 1) * DynamicLightingEngine.CELL_SIZE);
+			int endX = Math.min(this.maxX, (cellX + 2) * DynamicLightingEngine.CELL_SIZE - 1);
+			int endY = Math.min(this.maxY, (cellY + 2) * DynamicLightingEngine.CELL_SIZE - 1);
+			int endZ = Math.min(this.maxZ, (cellZ + 2) * DynamicLightingEngine.CELL_SIZE - 1);
+
+			if (behavior != null) {
+				this.addBehavior(behavior, startX, startY, startZ, endX, endY, endZ);
+				return;
+			}
+
+			// The blocks the light reaches, see SpatialLookupEntry.lightAtPos.
+			double radius = DynamicLightingEngine.getEffectiveRadius(luminance);
+			double lightX = x / (double) LightFalloff.PRECISION;
+			double lightY = y / (double) LightFalloff.PRECISION;
+			double lightZ = z / (double) LightFalloff.PRECISION;
+			startX = Math.max(startX, Mth.ceil(lightX - .5 - radius));
+			startY = Math.max(startY, Mth.ceil(lightY - .5 - radius));
+			startZ = Math.max(startZ, Mth.ceil(lightZ - .5 - radius));
+			endX = Math.min(endX, Mth.floor(lightX - .5 + radius));
+			endY = Math.min(endY, Mth.floor(lightY - .5 + radius));
+			endZ = Math.min(endZ, Mth.floor(lightZ - .5 + radius));
+
+			int reachSquared = LightFalloff.reachSquared(luminance);
+			int brightness = luminance * LightFalloff.PRECISION;
+
+			for (int blockY = startY; blockY <= endY; blockY++) {
+				int dy = LightFalloff.blockCenter(blockY) - y;
+				int dy2 = dy * dy;
+
+				for (int blockZ = startZ; blockZ <= endZ; blockZ++) {
+					int dz = LightFalloff.blockCenter(blockZ) - z;
+					int dyz2 = dy2 + dz * dz;
+					int row = this.index(startX, blockY, blockZ) - startX;
+
+					// Must stay the same computation as LightFalloff.lightAt.
+					for (int blockX = startX; blockX <= endX; blockX++) {
+						int dx = LightFalloff.blockCenter(blockX) - x;
+						int distanceSquared = dx * dx + dyz2;
+
+						if (distanceSquared < reachSquared) {
+							int light = brightness - LightFalloff.attenuation(distanceSquared);
+
+							if (light > this.getLevel(row + blockX)) {
+								this.setLevel(row + blockX, light);
+								this.lit = true;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private void addBehavior(
+				DynamicLightBehavior behavior, int startX, int startY, int startZ, int endX, int endY, int endZ
+		) {
+			if (startX > endX || startY > endY || startZ > endZ) return;
+
+			int index = this.behaviors.indexOf(behavior);
+
+			if (index == -1) {
+				index = this.behaviors.size();
+				this.behaviors.add(behavior);
+
+				if (this.behaviorBoxes.length < (index + 1) * 6) {
+					this.behaviorBoxes = Arrays.copyOf(this.behaviorBoxes, Math.max(12, this.behaviorBoxes.length * 2));
+				}
+
+				this.behaviorBoxes[index * 6] = startX;
+				this.behaviorBoxes[index * 6 + 1] = startY;
+				this.behaviorBoxes[index * 6 + 2] = startZ;
+				this.behaviorBoxes[index * 6 + 3] = endX;
+				this.behaviorBoxes[index * 6 + 4] = endY;
+				this.behaviorBoxes[index * 6 + 5] = endZ;
+			} else {
+				int box = index * 6;
+				this.behaviorBoxes[box] = Math.min(this.behaviorBoxes[box], startX);
+				this.behaviorBoxes[box + 1] = Math.min(this.behaviorBoxes[box + 1], startY);
+				this.behaviorBoxes[box + 2] = Math.min(this.behaviorBoxes[box + 2], startZ);
+				this.behaviorBoxes[box + 3] = Math.max(this.behaviorBoxes[box + 3], endX);
+				this.behaviorBoxes[box + 4] = Math.max(this.behaviorBoxes[box + 4], endY);
+				this.behaviorBoxes[box + 5] = Math.max(this.behaviorBoxes[box + 5], endZ);
+			}
+		}
+
+		void addLargeBehaviors(LargeBehaviorIndex index, boolean @Nullable [] removedOwners) {
+			for (int i = 0; i < index.size(); i++) {
+				if (index.isRemoved(i, removedOwners)) continue;
+
+				this.addBehavior(index.behaviors[i],
+						Math.max(this.minX, index.reachStart(i, 0)),
+						Math.max(this.minY, index.reachStart(i, 1)),
+						Math.max(this.minZ, index.reachStart(i, 2)),
+						Math.min(this.maxX, index.reachEnd(i, 0)),
+						Math.min(this.maxY, index.reachEnd(i, 1)),
+						Math.min(this.maxZ, index.reachEnd(i, 2))
+				);
+			}
+		}
+
+		void spreadBehaviors() {
+			for (int i = 0; i < this.behaviors.size(); i++) {
+				var behavior = this.behaviors.get(i);
+				int box = i * 6;
+
+				for (int blockY = this.behaviorBoxes[box + 1]; blockY <= this.behaviorBoxes[box + 4]; blockY++) {
+					for (int blockZ = this.behaviorBoxes[box + 2]; blockZ <= this.behaviorBoxes[box + 5]; blockZ++) {
+						for (int blockX = this.behaviorBoxes[box]; blockX <= this.behaviorBoxes[box + 3]; blockX++) {
+							this.pos.set(blockX, blockY, blockZ);
+							int light = LightFalloff.toFixedLevel(
+									behavior.lightAtPos(this.pos, 15. / DynamicLightingEngine.MAX_RADIUS)
+							);
+							int index = this.index(blockX, blockY, blockZ);
+
+							if (light > this.getLevel(index)) {
+								this.setLevel(index, light);
+								this.lit = true;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private int index(int x, int y, int z) {
+			return ((y - this.minY) * this.sizeZ + (z - this.minZ)) * this.sizeX + (x - this.minX);
+		}
+	}
+
+	/**
+	 * Represents a box of light levels stored as floating-point light levels.
+	 */
+	private static final class FloatLightBox extends LightBox {
+		private final float[] levels;
+
+		FloatLightBox(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, float[] levels) {
+			super(minX, minY, minZ, sizeX, sizeY, sizeZ);
+			this.levels = levels;
+
+			Arrays.fill(levels, 0, sizeX * sizeY * sizeZ, 0.f);
+		}
+
+		@Override
+		int getLevel(int index) {
+			return (int) (this.levels[index] * LightFalloff.PRECISION);
+		}
+
+		@Override
+		void setLevel(int index, int level) {
+			this.levels[index] = level / (float) LightFalloff.PRECISION;
+		}
+	}
+
+	/**
+	 * Represents a box of light levels stored as unsigned bytes in sixteenths of a light level.
+	 */
+	private static final class ByteLightBox extends LightBox {
+		private final byte[] levels;
+
+		ByteLightBox(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, byte[] levels) {
+			super(minX, minY, minZ, sizeX, sizeY, sizeZ);
+			this.levels = levels;
+
+			Arrays.fill(levels, 0, sizeX * sizeY * sizeZ, (byte) 0);
+		}
+
+		@Override
+		int getLevel(int index) {
+			return this.levels[index] & 0xff;
+		}
+
+		@Override
+		void setLevel(int index, int level) {
+			this.levels[index] = (byte) level;
+		}
+	}
+
+	static {
+		CELL_OFFSETS = new Vec3i[27];
+		int i = 0;
+
+		for (int x = -1; x <= 1; x++) {
+			for (int y = -1; y <= 1; y++) {
+				for (int z = -1; z <= 1; z++) {
+					CELL_OFFSETS[i] = new Vec3i(x, y, z);
+					i++;
+				}
+			}
+		}
+
+		// The closest cells are more likely to hold the brightest lights, look them up first.
+		Arrays.sort(CELL_OFFSETS, Comparator.comparingInt(offset -> offset.distManhattan(Vec3i.ZERO)));
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import dev.lambdaurora.lambdynlights.DynamicLightsConfig;
+
+/**
+ * Represents the governor which keeps the time spent on dynamic lighting each tick within the configured budget.
+ * <p>
+ * The time spent each tick, evaluating luminance, scheduling chunk section rebuilds and computing the spatial lookup,
+ * is smoothed with an exponential moving average. When the average goes past the budget the governor raises its level,
+ * and lowers it back once the average is well below the budget. Each level:
+ * <ul>
+ *     <li>brings the adaptive ticking distances closer to the camera,</li>
+ *     <li>raises the minimum tick mode past some levels,</li>
+ *     <li>and lowers the number of chunk section rebuilds the culling scheduler may queue each tick.</li>
+ * </ul>
+ * The level changes at most once per second, and the gap between the thresholds to raise and to lower the level
+ * keeps the governor from oscillating.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class TickBudgetGovernor {
+	public static final int MAX_LEVEL = 6;
+	/**
+	 * The weight of the last tick in the average time.
+	 */
+	private static final double SMOOTHING = .1;
+	/**
+	 * The fraction of the budget under which the level is lowered.
+	 */
+	private static final double LOWER_THRESHOLD = .7;
+	/**
+	 * The number of ticks between two level changes.
+	 */
+	private static final int COOLDOWN = 20;
+	private static final int BASE_REBUILD_LIMIT = 512;
+
+	private final DynamicLightsConfig config;
+	private double averageTime;
+	private long luminanceTime;
+	private int level;
+	private int cooldown;
+
+	public TickBudgetGovernor(DynamicLightsConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * {@return {@code true} if the governor is enabled, or {@code false} otherwise}
+	 */
+	public boolean isEnabled() {
+		return this.config.getTickBudget() > 0;
+	}
+
+	/**
+	 * Adds time spent evaluating the luminance of light sources during the current tick.
+	 *
+	 * @param nanos the time in nanoseconds
+	 */
+	public void addLuminanceTime(long nanos) {
+		this.luminanceTime += nanos;
+	}
+
+	/**
+	 * Ends the current tick and adjusts the level of the governor.
+	 *
+	 * @param nanos the time in nanoseconds spent on the end of the tick, excluding the luminance evaluation
+	 */
+	public void endTick(long nanos) {
+		double time = (nanos + this.luminanceTime) / 1_000_000.;
+		this.luminanceTime = 0;
+
+		if (!this.isEnabled()) {
+			this.averageTime = time;
+			this.level = 0;
+			this.cooldown = 0;
+			return;
+		}
+
+		this.averageTime += SMOOTHING * (time - this.averageTime);
+
+		if (this.cooldown > 0) {
+			this.cooldown--;
+			return;
+		}
+
+		double budget = this.config.getTickBudget();
+		if (this.averageTime > budget && this.level < MAX_LEVEL) {
+			this.level++;
+			this.cooldown = COOLDOWN;
+		} else if (this.averageTime < budget * LOWER_THRESHOLD && this.level > 0) {
+			this.level--;
+			this.cooldown = COOLDOWN;
+		}
+	}
+
+	/**
+	 * {@return the smoothed time in milliseconds spent on dynamic lighting each tick}
+	 */
+	public double getAverageTime() {
+		return this.averageTime;
+	}
+
+	/**
+	 * {@return the current level of the governor, {@code 0} if nothing is limited}
+	 */
+	public int getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * {@return the factor to apply to the squared adaptive ticking distances}
+	 */
+	public float getTickingDistanceFactor() {
+		float factor = 1.f - this.level / 8.f;
+		return factor * factor;
+	}
+
+	/**
+	 * {@return the minimum tick mode imposed on every light source}
+	 */
+	public TickMode getMinimumTickMode() {
+		if (this.level >= 5) return TickMode.SLOWER;
+		else if (this.level >= 3) return TickMode.SLOW;
+		return TickMode.REAL_TIME;
+	}
+
+	/**
+	 * {@return the maximum number of chunk section rebuilds to queue each tick}
+	 */
+	public int getRebuildLimit() {
+		if (this.level == 0) return Integer.MAX_VALUE;
+		return BASE_REBUILD_LIMIT >> this.level;
+	}
+}
@@ -13,14 +13,25 @@ package dev.lambdaurora.lambdynlights.engine;
  * Represents a ticking mode.
  *
  * @author Akarys
- * @version 4.8.0
+ * @version 4.10.0
  * @since 4.8.0
  */
 public enum TickMode {
 	REAL_TIME(1),
 	SLOW(5),
 	SLOWER(10),
-	BACKGROUND(20);
+	BACKGROUND(20),
+	/**
+	 * The ticking mode of light sources which cannot light up any visible chunk section.
+	 *
+	 * @see TickModeClassifier
+	 */
+	CULLED(20);
+
+	/**
+	 * The longest delay of the ticking modes.
+	 */
+	public static final int MAX_DELAY = 20;
 
 	private final int delay;
 
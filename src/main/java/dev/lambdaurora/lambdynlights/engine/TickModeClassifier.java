@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import dev.lambdaurora.lambdynlights.DynamicLightsConfig;
+import dev.lambdaurora.lambdynlights.engine.source.DeferredDynamicLightSource;
+import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSource;
+import dev.lambdaurora.lambdynlights.engine.source.EntityDynamicLightSource;
+import dev.lambdaurora.lambdynlights.mixin.LevelRendererAccessor;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.client.Camera;
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Mth;
+import org.joml.FrustumIntersection;
+
+/**
+ * Represents the classifier of the light sources into their base {@link TickMode}.
+ * <p>
+ * Light sources far from the camera or behind it are slowed down.
+ * Light sources which cannot light up any visible chunk section, either as the area they light up is outside the view frustum
+ * or as the renderer does not draw any of the chunk sections within it, are {@link TickMode#CULLED culled}.
+ * They are promoted back once they are re-classified while in view.
+ * Only the light sources which light up something, tracked or parked, are worth culling.
+ * <p>
+ * The adaptive ticking distances are brought closer by the {@link TickBudgetGovernor} when dynamic lighting goes over its budget.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class TickModeClassifier {
+	/**
+	 * The reach of a light source, with an extra block for the neighbours sampled by smooth lighting.
+	 * <p>
+	 * The brightest light is assumed as the luminance of a light source may change between its ticks.
+	 */
+	private static final double REACH = DynamicLightingEngine.MAX_RADIUS + 1;
+
+	private final DynamicLightsConfig config;
+	private final TickBudgetGovernor governor;
+	private final LongOpenHashSet visibleSections = new LongOpenHashSet();
+
+	public TickModeClassifier(DynamicLightsConfig config, TickBudgetGovernor governor) {
+		this.config = config;
+		this.governor = governor;
+	}
+
+	/**
+	 * Captures the visible chunk sections for the classifications of the tick.
+	 *
+	 * @param client the client
+	 */
+	public void startTick(Minecraft client) {
+		this.visibleSections.clear();
+
+		if (this.config.getCulledAdaptiveTicking().get()) {
+			for (var section : ((LevelRendererAccessor) client.levelRenderer).lambdynlights$getVisibleSections()) {
+				this.visibleSections.add(section.getSectionNode());
+			}
+		}
+	}
+
+	/**
+	 * {@return the base tick mode of the given light source}
+	 *
+	 * @param lightSource the light source
+	 * @param cull {@code true} to cull the light source if it cannot light up any visible chunk section,
+	 * which is only worth it for the light sources which actually light up something, or {@code false} otherwise
+	 */
+	public TickMode classify(DynamicLightSource lightSource, boolean cull) {
+		var camera = Minecraft.getInstance().gameRenderer.getMainCamera();
+		cull &= this.config.getCulledAdaptiveTicking().get();
+
+		if (lightSource instanceof EntityDynamicLightSource entity) {
+			double x = entity.getDynamicLightX();
+			double y = entity.getDynamicLightY();
+			double z = entity.getDynamicLightZ();
+
+			if (cull && !this.canLightVisibleSection(camera, x, y, z, x, y, z)) {
+				return this.getBaseTickMode(camera, x, y, z).min(TickMode.CULLED);
+			}
+
+			return this.getBaseTickMode(camera, x, y, z);
+		} else if (lightSource instanceof DeferredDynamicLightSource deferred) {
+			var boundingBox = deferred.behavior().getBoundingBox();
+			var mode = TickMode.BACKGROUND;
+
+			// The fastest tick mode of the corners of the bounding box.
+			for (int i = 0; i < 8 && mode != TickMode.REAL_TIME; i++) {
+				mode = mode.max(this.getBaseTickMode(
+						camera,
+						i >> 2 == 0 ? boundingBox.startX() : boundingBox.endX(),
+						((i >> 1) & 1) == 0 ? boundingBox.startY() : boundingBox.endY(),
+						(i & 1) == 0 ? boundingBox.startZ() : boundingBox.endZ()
+				));
+			}
+
+			if (cull && !this.canLightVisibleSection(
+					camera,
+					boundingBox.startX(), boundingBox.startY(), boundingBox.startZ(),
+					boundingBox.endX() + 1, boundingBox.endY() + 1, boundingBox.endZ() + 1
+			)) {
+				return mode.min(TickMode.CULLED);
+			}
+
+			return mode;
+		}
+
+		return TickMode.REAL_TIME;
+	}
+
+	private TickMode getBaseTickMode(Camera camera, double x, double y, double z) {
+		var mode = TickMode.REAL_TIME;
+
+		// If the entity is far behind the camera, we greatly slow it down.
+		var planeNormal = camera.forwardVector();
+		var planeOrigin = camera.position();
+
+		float signedDistance = planeNormal.x() * (float) (x - planeOrigin.x)
+				+ planeNormal.y() * (float) (y - planeOrigin.y)
+				+ planeNormal.z() * (float) (z - planeOrigin.z);
+
+		if (this.config.getBackgroundAdaptiveTicking().get() && signedDistance < -DynamicLightingEngine.MAX_RADIUS - 1) {
+			mode = TickMode.BACKGROUND;
+		}
+		// If the entity is too far away, we slow it down.
+		else {
+			float dX = (float) (planeOrigin.x - x);
+			float dY = (float) (planeOrigin.y - y);
+			float dZ = (float) (planeOrigin.z - z);
+			float squaredDist = dX * dX + dY * dY + dZ * dZ;
+			float factor = this.governor.getTickingDistanceFactor();
+			if (squaredDist > this.config.getSlowerTickingDistance() * factor) {
+				mode = TickMode.SLOWER;
+			} else if (squaredDist > this.config.getSlowTickingDistance() * factor) {
+				mode = TickMode.SLOW;
+			}
+		}
+
+		return mode;
+	}
+
+	/**
+	 * {@return {@code true} if a light within the given box may light up a visible chunk section, or {@code false} otherwise}
+	 */
+	private boolean canLightVisibleSection(Camera camera, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		minX -= REACH;
+		minY -= REACH;
+		minZ -= REACH;
+		maxX += REACH;
+		maxY += REACH;
+		maxZ += REACH;
+
+		int hitResult = camera.getCullFrustum().cubeInFrustum(minX, minY, minZ, maxX, maxY, maxZ);
+		if (hitResult != FrustumIntersection.INTERSECT && hitResult != FrustumIntersection.INSIDE) {
+			return false;
+		}
+
+		// If the renderer does not expose its visible sections, for example if it is replaced by another mod, only the frustum is used.
+		// We'd rather refresh too often than to cause visual glitches.
+		if (this.visibleSections.isEmpty()) return true;
+
+		int minSectionX = SectionPos.blockToSectionCoord(Mth.floor(minX));
+		int minSectionY = SectionPos.blockToSectionCoord(Mth.floor(minY));
+		int minSectionZ = SectionPos.blockToSectionCoord(Mth.floor(minZ));
+		int maxSectionX = SectionPos.blockToSectionCoord(Mth.floor(maxX));
+		int maxSectionY = SectionPos.blockToSectionCoord(Mth.floor(maxY));
+		int maxSectionZ = SectionPos.blockToSectionCoord(Mth.floor(maxZ));
+
+		for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+			for (int sectionZ = minSectionZ; sectionZ <= maxSectionZ; sectionZ++) {
+				for (int sectionX = minSectionX; sectionX <= maxSectionX; sectionX++) {
+					if (this.visibleSections.contains(SectionPos.asLong(sectionX, sectionY, sectionZ))) {
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine;
+
+import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSource;
+import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSourceRegistry;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.function.Function;
+
+/**
+ * Represents the timing wheel which schedules the ticking of the tracked light sources according to their {@link TickMode}.
+ * <p>
+ * Each light source is placed in the bucket of the next tick it is due, and is only re-classified when it comes due,
+ * so the work done each tick is proportional to the number of light sources which actually tick.
+ * A light source is due on the ticks matching its identifier modulo its delay, which spreads the slower light sources across ticks.
+ * <p>
+ * The wheel has as many buckets as the longest delay, so a bucket only ever holds light sources due on the tick it is drained.
+ * Entries of light sources which stopped being tracked, or which have been rescheduled, are discarded when their bucket is drained.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class TickWheel {
+	private static final int SIZE = TickMode.MAX_DELAY;
+
+	private final DynamicLightSourceRegistry registry;
+	private final Function<DynamicLightSource, TickMode> classifier;
+	@SuppressWarnings("unchecked")
+	private final ObjectArrayList<DynamicLightSource>[] buckets = new ObjectArrayList[SIZE];
+	private ObjectArrayList<DynamicLightSource> spare = new ObjectArrayList<>();
+
+	private int lastDueCount;
+	private int lastFasterCount;
+	private int lastSlowerCount;
+
+	/**
+	 * @param registry the registry of the light sources to schedule
+	 * @param classifier the function classifying a light source into its effective tick mode
+	 */
+	public TickWheel(DynamicLightSourceRegistry registry, Function<DynamicLightSource, TickMode> classifier) {
+		this.registry = registry;
+		this.classifier = classifier;
+
+		for (int i = 0; i < SIZE; i++) {
+			this.buckets[i] = new ObjectArrayList<>();
+		}
+	}
+
+	/**
+	 * Schedules a newly tracked light source, which is due on the current tick.
+	 *
+	 * @param lightSource the light source, which must be tracked by the registry
+	 * @param tick the current tick
+	 */
+	public void schedule(DynamicLightSource lightSource, int tick) {
+		int slot = lightSource.getDynamicLightSlot();
+		var mode = this.classifier.apply(lightSource);
+
+		this.registry.setDueTick(slot, tick);
+		this.registry.setTickMode(slot, mode);
+		this.place(lightSource, tick, mode);
+	}
+
+	/**
+	 * Reschedules every tracked light source, for example when the minimum tick mode changes.
+	 *
+	 * @param tick the current tick
+	 */
+	public void rescheduleAll(int tick) {
+		this.clear();
+
+		for (int slot = 0; slot < this.registry.size(); slot++) {
+			this.schedule(this.registry.get(slot), tick);
+		}
+	}
+
+	/**
+	 * Drains the bucket of the given tick: its light sources are due, they are re-classified and placed in the bucket of their next due tick.
+	 *
+	 * @param tick the new current tick
+	 */
+	public void advance(int tick) {
+		int index = Math.floorMod(tick, SIZE);
+		var bucket = this.buckets[index];
+		// The light sources which are due again in as many ticks as there are buckets are placed in the same bucket.
+		this.buckets[index] = this.spare;
+
+		int due = 0;
+		int faster = 0;
+		int slower = 0;
+
+		for (int i = 0; i < bucket.size(); i++) {
+			var lightSource = bucket.get(i);
+			if (!this.registry.contains(lightSource)) continue;
+
+			int slot = lightSource.getDynamicLightSlot();
+			var previousMode = this.registry.getTickMode(slot);
+			// Only the entry placed when the light source was last scheduled is valid, any other is stale.
+			if (nextDueTick(lightSource, this.registry.getDueTick(slot), previousMode) != tick) continue;
+
+			var mode = this.classifier.apply(lightSource);
+
+			if (mode.delay() < previousMode.delay()) faster++;
+			else if (mode.delay() > previousMode.delay()) slower++;
+
+			this.registry.setDueTick(slot, tick);
+			this.registry.setTickMode(slot, mode);
+			this.place(lightSource, tick, mode);
+			due++;
+		}
+
+		bucket.clear();
+		this.spare = bucket;
+
+		this.lastDueCount = due;
+		this.lastFasterCount = faster;
+		this.lastSlowerCount = slower;
+	}
+
+	/**
+	 * {@return {@code true} if the given light source is due on the given tick, or {@code false} otherwise}
+	 *
+	 * @param lightSource the light source
+	 * @param tick the current tick
+	 */
+	public boolean isDue(DynamicLightSource lightSource, int tick) {
+		return this.registry.contains(lightSource) && this.registry.getDueTick(lightSource.getDynamicLightSlot()) == tick;
+	}
+
+	/**
+	 * Removes every entry from the wheel.
+	 */
+	public void clear() {
+		for (var bucket : this.buckets) {
+			bucket.clear();
+		}
+	}
+
+	/**
+	 * {@return the number of light sources which came due on the last tick}
+	 */
+	public int getLastDueCount() {
+		return this.lastDueCount;
+	}
+
+	/**
+	 * {@return the number of light sources which switched to a faster tick mode on the last tick}
+	 */
+	public int getLastFasterCount() {
+		return this.lastFasterCount;
+	}
+
+	/**
+	 * {@return the number of light sources which switched to a slower tick mode on the last tick}
+	 */
+	public int getLastSlowerCount() {
+		return this.lastSlowerCount;
+	}
+
+	private void place(DynamicLightSource lightSource, int tick, TickMode mode) {
+		this.buckets[Math.floorMod(nextDueTick(lightSource, tick, mode), SIZE)].add(lightSource);
+	}
+
+	/**
+	 * {@return the first tick after the given tick on which the given light source is due in the given tick mode}
+	 */
+	private static int nextDueTick(DynamicLightSource lightSource, int tick, TickMode mode) {
+		int delay = mode.delay();
+		int offset = Math.floorMod(lightSource.getDynamicLightId() - tick, delay);
+		return tick + (offset == 0 ? delay : offset);
+	}
+}
@@ -11,17 +11,22 @@ package dev.lambdaurora.lambdynlights.engine.lookup;
 
 import net.minecraft.core.BlockPos;
 
+import java.util.Arrays;
+
 /**
  * Represents an entry made of a collection of light sources in a spatial lookup.
+ * <p>
+ * The light sources are located at the center of their block, and there is at most one light source per block.
  *
- * @param cellKey the cell key of this entry
- * @param positions the positions of each light sources in the current cell
+ * @param cell the packed coordinates of the cell of this entry
+ * @param positions the positions of each light sources in the current cell, sorted
  * @param luminance the light values in the current cell
  * @author LambdAurora, Akarys
- * @version 4.0.0
+ * @version 4.10.0
  * @since 4.0.0
+ * @see dev.lambdaurora.lambdynlights.engine.source.ClusteredDynamicLightSource
  */
-public record SpatialLookupCollectionEntry(int cellKey, long[] positions, byte[] luminance) implements SpatialLookupEntry {
+public record SpatialLookupCollectionEntry(long cell, long[] positions, byte[] luminance) implements SpatialLookupEntry {
 	@Override
 	public double getDynamicLightLevel(BlockPos pos) {
 		double maxLightLevel = 0.;
@@ -42,4 +47,15 @@ public record SpatialLookupCollectionEntry(int cellKey, long[] positions, byte[]
 
 		return maxLightLevel;
 	}
+
+	/**
+	 * {@return {@code true} if the given entry holds the same light sources as this entry, or {@code false} otherwise}
+	 *
+	 * @param other the other entry
+	 */
+	public boolean hasSameLights(SpatialLookupCollectionEntry other) {
+		return this.cell == other.cell
+				&& Arrays.equals(this.positions, other.positions)
+				&& Arrays.equals(this.luminance, other.luminance);
+	}
 }
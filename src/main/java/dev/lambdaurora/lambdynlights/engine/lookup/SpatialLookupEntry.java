@@ -16,14 +16,14 @@ import net.minecraft.core.BlockPos;
  * Represents an entry in a spatial lookup.
  *
  * @author LambdAurora, Akarys
- * @version 4.0.0
+ * @version 4.10.0
  * @since 3.1.0
  */
 public interface SpatialLookupEntry {
 	/**
-	 * {@return the cell key of this entry}
+	 * {@return the packed coordinates of the cell of this entry}
 	 */
-	int cellKey();
+	long cell();
 
 	/**
 	 * Returns the dynamic light level generated by this entry at the specified position.
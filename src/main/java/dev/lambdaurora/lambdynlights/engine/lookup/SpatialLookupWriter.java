@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine.lookup;
+
+import dev.lambdaurora.lambdynlights.api.behavior.DynamicLightBehavior;
+
+/**
+ * Represents a writer of spatial lookup entries.
+ * <p>
+ * Light sources write their entries through this writer when the spatial lookup is computed,
+ * which stores them directly into the flat arrays of the spatial lookup.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public interface SpatialLookupWriter {
+	/**
+	 * Writes a point light entry.
+	 *
+	 * @param x the X-coordinate of the light
+	 * @param y the Y-coordinate of the light
+	 * @param z the Z-coordinate of the light
+	 * @param luminance the luminance of the light
+	 */
+	void addEntry(double x, double y, double z, int luminance);
+
+	/**
+	 * Writes an entry whose light is deferred to the given behavior in the given cell.
+	 *
+	 * @param cellX the cell X-coordinate
+	 * @param cellY the cell Y-coordinate
+	 * @param cellZ the cell Z-coordinate
+	 * @param behavior the dynamic lighting behavior
+	 */
+	void addDeferredEntry(int cellX, int cellY, int cellZ, DynamicLightBehavior behavior);
+
+	/**
+	 * Writes an entry whose light is deferred to the given behavior, which spans a large area.
+	 * <p>
+	 * Unlike {@link #addDeferredEntry(int, int, int, DynamicLightBehavior)} which has to be called for each cell,
+	 * this is called only once for the whole behavior.
+	 *
+	 * @param behavior the dynamic lighting behavior
+	 * @param boundingBox the bounding box of the behavior
+	 */
+	void addLargeDeferredEntry(DynamicLightBehavior behavior, DynamicLightBehavior.BoundingBox boundingBox);
+}
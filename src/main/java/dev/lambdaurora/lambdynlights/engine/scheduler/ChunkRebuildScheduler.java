@@ -9,6 +9,7 @@
 
 package dev.lambdaurora.lambdynlights.engine.scheduler;
 
+import dev.lambdaurora.lambdynlights.LambDynLights;
 import dev.lambdaurora.lambdynlights.engine.source.DynamicLightSource;
 import dev.lambdaurora.lambdynlights.mixin.LevelRendererAccessor;
 import dev.lambdaurora.lambdynlights.util.DynamicLightDebugRenderer;
@@ -24,13 +25,14 @@ import java.util.function.Consumer;
  * Represents a chunk section rebuild scheduler for dynamic light sources.
  *
  * @author LambdAurora, Akarys
- * @version 4.8.0
+ * @version 4.10.0
  * @since 4.8.0
  */
 public abstract class ChunkRebuildScheduler implements Closeable {
 	protected final Minecraft client = Minecraft.getInstance();
 	protected final DynamicLightDebugRenderer.SectionRebuild sectionRebuildDebugRenderer;
 	private int sourceUpdatedLastTick = 0;
+	protected int rebuildLimit = Integer.MAX_VALUE;
 
 	protected ChunkRebuildScheduler(DynamicLightDebugRenderer.SectionRebuild sectionRebuildDebugRenderer) {
 		this.sectionRebuildDebugRenderer = sectionRebuildDebugRenderer;
@@ -46,6 +48,15 @@ public abstract class ChunkRebuildScheduler implements Closeable {
 	public void appendF3Debug(Consumer<String> consumer) {
 	}
 
+	/**
+	 * Sets the maximum number of chunk section rebuilds to queue each tick, schedulers which defer rebuilds stop queueing past it.
+	 *
+	 * @param rebuildLimit the maximum number of chunk section rebuilds
+	 */
+	public void setRebuildLimit(int rebuildLimit) {
+		this.rebuildLimit = rebuildLimit;
+	}
+
 	public final void update(
 			DynamicLightSource lightSource, Long2ObjectMap<ChunkRebuildStatus> chunks
 	) {
@@ -85,10 +96,26 @@ public abstract class ChunkRebuildScheduler implements Closeable {
 
 	/**
 	 * Schedules a chunk rebuild at the specified chunk position.
+	 * <p>
+	 * In pipelined mode, the rebuild is deferred until the snapshot of the spatial lookup it has to be meshed with is published.
 	 *
 	 * @param chunkPos the packed chunk position
 	 */
 	protected final void scheduleChunkRebuild(long chunkPos) {
+		if (!LambDynLights.get().engine.deferChunkRebuild(chunkPos)) {
+			this.rebuildChunk(chunkPos);
+		}
+	}
+
+	/**
+	 * Rebuilds the chunk at the specified chunk position right away.
+	 *
+	 * @param chunkPos the packed chunk position
+	 * @see dev.lambdaurora.lambdynlights.engine.DynamicLightingEngine#flushChunkRebuilds(java.util.function.LongConsumer)
+	 */
+	public final void rebuildChunk(long chunkPos) {
+		// The light grid of the section will be computed again when the section is rebuilt.
+		LambDynLights.get().engine.getSectionLightCache().invalidate(chunkPos);
 		this.scheduleChunkRebuild(SectionPos.x(chunkPos), SectionPos.y(chunkPos), SectionPos.z(chunkPos));
 		this.sectionRebuildDebugRenderer.scheduleChunkRebuild(chunkPos);
 	}
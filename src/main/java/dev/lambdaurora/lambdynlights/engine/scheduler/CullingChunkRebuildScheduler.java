@@ -167,7 +167,8 @@ public final class CullingChunkRebuildScheduler extends ChunkRebuildScheduler {
 				if (shouldRebuild) break;
 			}
 
-			if (shouldRebuild) {
+			// Past the rebuild limit, the remaining rebuilds stay requested for the next ticks.
+			if (shouldRebuild && this.rebuildQueuedLastTick < this.rebuildLimit) {
 				int x = SectionPos.x(chunkPos);
 				int y = SectionPos.y(chunkPos);
 				int z = SectionPos.z(chunkPos);
@@ -0,0 +1,257 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine.source;
+
+import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupCollectionEntry;
+import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupWriter;
+import dev.lambdaurora.lambdynlights.engine.scheduler.ChunkRebuildStatus;
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.bytes.ByteArrays;
+import it.unimi.dsi.fastutil.longs.Long2ObjectArrayMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.Mth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents a dynamic light source made of the weak light sources of the same kind within a single cell.
+ * <p>
+ * Instead of each light source tracking its own lit chunk sections and deciding on its own whether they need
+ * to be rebuilt, the cluster does it once for all of its members.
+ * The members are snapped to the center of their block, and only the brightest of the members within the same block
+ * is kept, which is stored as a {@link SpatialLookupCollectionEntry}.
+ * The chunk sections are only rebuilt when this entry changes.
+ * <p>
+ * As most clusters do not change between their ticks, the members are first gathered into reusable scratch arrays
+ * along with a hash of their snapped positions and luminance, and the entry is only built again if the hash changed.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @see DynamicLightSourceClusters
+ * @since 4.10.0
+ */
+public final class ClusteredDynamicLightSource implements DynamicLightSource {
+	private static final AtomicInteger ID_COUNTER = new AtomicInteger(0);
+	private static final long[] NO_POSITIONS = new long[0];
+	private static final byte[] NO_LUMINANCE = new byte[0];
+
+	private final int id = ID_COUNTER.getAndIncrement();
+	private int slot = -1;
+	private final Class<?> kind;
+	private final long cell;
+	private final List<EntityDynamicLightSourceBehavior> members = new ArrayList<>();
+	private SpatialLookupCollectionEntry entry;
+	private LongSet trackedLitChunkPos = LongSet.of();
+	private long[] scratchPositions = NO_POSITIONS;
+	private byte[] scratchLuminance = NO_LUMINANCE;
+	/**
+	 * The number of lit members and the hash of their snapped positions and luminance when the entry was last built.
+	 */
+	private int entryLitCount = -1;
+	private long entryHash;
+
+	ClusteredDynamicLightSource(Class<?> kind, long cell) {
+		this.kind = kind;
+		this.cell = cell;
+		this.entry = new SpatialLookupCollectionEntry(cell, NO_POSITIONS, NO_LUMINANCE);
+	}
+
+	/**
+	 * {@return the kind of the light sources of this cluster}
+	 */
+	public Class<?> kind() {
+		return this.kind;
+	}
+
+	/**
+	 * {@return the packed coordinates of the cell of this cluster}
+	 */
+	public long cell() {
+		return this.cell;
+	}
+
+	/**
+	 * {@return the light sources of this cluster}
+	 */
+	public List<EntityDynamicLightSourceBehavior> members() {
+		return this.members;
+	}
+
+	/**
+	 * {@return the luminance of the brightest member of this cluster}
+	 */
+	public int getMaxLuminance() {
+		int luminance = 0;
+
+		for (byte value : this.entry.luminance()) {
+			luminance = Math.max(luminance, value);
+		}
+
+		return luminance;
+	}
+
+	@Override
+	public int getDynamicLightId() {
+		return this.id;
+	}
+
+	@Override
+	public int getDynamicLightSlot() {
+		return this.slot;
+	}
+
+	@Override
+	public void setDynamicLightSlot(int slot) {
+		this.slot = slot;
+	}
+
+	@Override
+	public void splitIntoDynamicLightEntries(SpatialLookupWriter writer) {
+		var entry = this.entry;
+
+		for (int i = 0; i < entry.positions().length; i++) {
+			long pos = entry.positions()[i];
+			writer.addEntry(BlockPos.getX(pos) + .5, BlockPos.getY(pos) + .5, BlockPos.getZ(pos) + .5, entry.luminance()[i]);
+		}
+	}
+
+	@Override
+	public Long2ObjectMap<ChunkRebuildStatus> getDynamicLightChunksToRebuild(boolean forced) {
+		int lit = this.gatherMembers();
+		long hash = this.hashMembers(lit);
+
+		if (!forced && lit == this.entryLitCount && hash == this.entryHash) {
+			return Long2ObjectMaps.emptyMap();
+		}
+
+		var entry = this.collectEntry(lit);
+		this.entryLitCount = lit;
+		this.entryHash = hash;
+
+		if (!forced && entry.hasSameLights(this.entry)) {
+			return Long2ObjectMaps.emptyMap();
+		}
+
+		var newPos = new LongOpenHashSet();
+		for (int i = 0; i < entry.positions().length; i++) {
+			long pos = entry.positions()[i];
+			DynamicLightSource.gatherClosestChunks(
+					BlockPos.getX(pos) + .5, BlockPos.getY(pos) + .5, BlockPos.getZ(pos) + .5,
+					entry.luminance()[i], newPos::add
+			);
+		}
+
+		var result = new Long2ObjectArrayMap<ChunkRebuildStatus>(8);
+		this.trackedLitChunkPos.forEach(chunk -> {
+			result.put(chunk, ChunkRebuildStatus.REMOVE_REQUESTED);
+		});
+		newPos.forEach(chunk -> result.put(chunk, ChunkRebuildStatus.REQUESTED));
+
+		this.entry = entry;
+		this.trackedLitChunkPos = newPos;
+
+		return result;
+	}
+
+	/**
+	 * Gathers the snapped positions and the luminance of the lit members into the scratch arrays.
+	 *
+	 * @return the number of lit members
+	 */
+	private int gatherMembers() {
+		int count = this.members.size();
+		if (this.scratchPositions.length < count) {
+			this.scratchPositions = new long[count];
+			this.scratchLuminance = new byte[count];
+		}
+
+		var positions = this.scratchPositions;
+		var luminance = this.scratchLuminance;
+		int lit = 0;
+		for (var member : this.members) {
+			int memberLuminance = member.getLuminance();
+			if (memberLuminance <= 0) continue;
+
+			positions[lit] = BlockPos.asLong(
+					Mth.floor(member.getDynamicLightX()),
+					Mth.floor(member.getDynamicLightY()),
+					Mth.floor(member.getDynamicLightZ())
+			);
+			luminance[lit] = (byte) Math.min(memberLuminance, 15);
+			lit++;
+		}
+
+		return lit;
+	}
+
+	/**
+	 * {@return the hash of the gathered members, which does not depend on their order}
+	 *
+	 * @param lit the number of lit members
+	 */
+	private long hashMembers(int lit) {
+		long hash = 0;
+
+		for (int i = 0; i < lit; i++) {
+			hash += HashCommon.mix(HashCommon.mix(this.scratchPositions[i]) + this.scratchLuminance[i]);
+		}
+
+		return hash;
+	}
+
+	/**
+	 * {@return the collection entry of the gathered members}
+	 *
+	 * @param lit the number of lit members
+	 */
+	private SpatialLookupCollectionEntry collectEntry(int lit) {
+		var positions = this.scratchPositions;
+		var luminance = this.scratchLuminance;
+
+		// Sorting makes the entry independent of the order of the members, and brings together the members of the same block.
+		Arrays.quickSort(0, lit,
+				(a, b) -> Long.compare(positions[a], positions[b]),
+				(a, b) -> {
+					long position = positions[a];
+					positions[a] = positions[b];
+					positions[b] = position;
+
+					byte value = luminance[a];
+					luminance[a] = luminance[b];
+					luminance[b] = value;
+				}
+		);
+
+		int size = 0;
+		for (int i = 0; i < lit; i++) {
+			if (size > 0 && positions[size - 1] == positions[i]) {
+				luminance[size - 1] = (byte) Math.max(luminance[size - 1], luminance[i]);
+			} else {
+				positions[size] = positions[i];
+				luminance[size] = luminance[i];
+				size++;
+			}
+		}
+
+		return new SpatialLookupCollectionEntry(
+				this.cell,
+				LongArrays.copy(positions, 0, size),
+				ByteArrays.copy(luminance, 0, size)
+		);
+	}
+}
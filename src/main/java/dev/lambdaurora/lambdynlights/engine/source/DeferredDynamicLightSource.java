@@ -10,10 +10,8 @@
 package dev.lambdaurora.lambdynlights.engine.source;
 
 import dev.lambdaurora.lambdynlights.api.behavior.DynamicLightBehavior;
-import dev.lambdaurora.lambdynlights.engine.CellHasher;
 import dev.lambdaurora.lambdynlights.engine.DynamicLightingEngine;
-import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupDeferredEntry;
-import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupEntry;
+import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupWriter;
 import dev.lambdaurora.lambdynlights.engine.scheduler.ChunkRebuildStatus;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
@@ -22,22 +20,25 @@ import net.minecraft.core.SectionPos;
 import net.minecraft.util.Mth;
 import org.jspecify.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.LongConsumer;
-import java.util.stream.Stream;
 
 /**
  * Represents a dynamic light source which is deferred to a {@link DynamicLightBehavior}.
  *
  * @author LambdAurora, Akarys
- * @version 4.8.0
+ * @version 4.10.0
  * @since 4.0.0
  */
 public final class DeferredDynamicLightSource implements DynamicLightSource {
 	private static final AtomicInteger ID_COUNTER = new AtomicInteger(0);
+	/**
+	 * The number of cells past which a behavior is considered large, like beacon beams spanning the whole world height.
+	 */
+	private static final int LARGE_BEHAVIOR_CELLS = 8;
 
 	private final int id = ID_COUNTER.getAndIncrement();
+	private int slot = -1;
 	private final DynamicLightBehavior behavior;
 	private DynamicLightBehavior.@Nullable BoundingBox previousBoundingBox;
 
@@ -56,24 +57,39 @@ public final class DeferredDynamicLightSource implements DynamicLightSource {
 	}
 
 	@Override
-	public Stream<SpatialLookupEntry> splitIntoDynamicLightEntries(CellHasher cellHasher) {
-		DynamicLightBehavior.BoundingBox boundingBox = this.behavior.getBoundingBox();
+	public int getDynamicLightSlot() {
+		return this.slot;
+	}
 
-		var chunks = new ArrayList<SpatialLookupEntry>();
+	@Override
+	public void setDynamicLightSlot(int slot) {
+		this.slot = slot;
+	}
+
+	@Override
+	public void splitIntoDynamicLightEntries(SpatialLookupWriter writer) {
+		DynamicLightBehavior.BoundingBox boundingBox = this.behavior.getBoundingBox();
 
 		int cellEndX = DynamicLightingEngine.positionToCell(boundingBox.endX());
 		int cellEndY = DynamicLightingEngine.positionToCell(boundingBox.endY());
 		int cellEndZ = DynamicLightingEngine.positionToCell(boundingBox.endZ());
 
+		long cells = (long) (cellEndX - DynamicLightingEngine.positionToCell(boundingBox.startX()) + 1)
+				* (cellEndY - DynamicLightingEngine.positionToCell(boundingBox.startY()) + 1)
+				* (cellEndZ - DynamicLightingEngine.positionToCell(boundingBox.startZ()) + 1);
+
+		if (cells > LARGE_BEHAVIOR_CELLS) {
+			writer.addLargeDeferredEntry(this.behavior, boundingBox);
+			return;
+		}
+
 		for (int x = DynamicLightingEngine.positionToCell(boundingBox.startX()); x <= cellEndX; x++) {
 			for (int y = DynamicLightingEngine.positionToCell(boundingBox.startY()); y <= cellEndY; y++) {
 				for (int z = DynamicLightingEngine.positionToCell(boundingBox.startZ()); z <= cellEndZ; z++) {
-					chunks.add(new SpatialLookupDeferredEntry(cellHasher.hashCell(x, y, z), behavior));
+					writer.addDeferredEntry(x, y, z, this.behavior);
 				}
 			}
 		}
-
-		return chunks.stream();
 	}
 
 	@Override
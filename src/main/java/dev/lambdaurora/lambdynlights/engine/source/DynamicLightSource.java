@@ -9,8 +9,8 @@
 
 package dev.lambdaurora.lambdynlights.engine.source;
 
-import dev.lambdaurora.lambdynlights.engine.CellHasher;
-import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupEntry;
+import dev.lambdaurora.lambdynlights.engine.DynamicLightingEngine;
+import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupWriter;
 import dev.lambdaurora.lambdynlights.engine.scheduler.ChunkRebuildStatus;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import net.minecraft.core.BlockPos;
@@ -19,13 +19,12 @@ import net.minecraft.core.SectionPos;
 import net.minecraft.util.Mth;
 
 import java.util.function.LongConsumer;
-import java.util.stream.Stream;
 
 /**
  * Represents a dynamic light source.
  *
  * @author LambdAurora
- * @version 4.8.0
+ * @version 4.10.0
  * @since 4.0.0
  */
 public interface DynamicLightSource {
@@ -34,13 +33,28 @@ public interface DynamicLightSource {
 	 */
 	int getDynamicLightId();
 
+	/**
+	 * {@return the slot of this dynamic light source in the registry of tracked light sources, or {@code -1} if it is not tracked}
+	 *
+	 * @see DynamicLightSourceRegistry
+	 */
+	int getDynamicLightSlot();
+
+	/**
+	 * Sets the slot of this dynamic light source in the registry of tracked light sources.
+	 * <p>
+	 * Note: only {@link DynamicLightSourceRegistry} may call this method.
+	 *
+	 * @param slot the slot, or {@code -1} if it is not tracked
+	 */
+	void setDynamicLightSlot(int slot);
+
 	/**
 	 * Splits this dynamic light source into spatial lookup entries.
 	 *
-	 * @param cellHasher the cell hasher
-	 * @return a stream of spatial lookup entries this source is made of
+	 * @param writer the writer of the spatial lookup entries this source is made of
 	 */
-	Stream<SpatialLookupEntry> splitIntoDynamicLightEntries(CellHasher cellHasher);
+	void splitIntoDynamicLightEntries(SpatialLookupWriter writer);
 
 	/**
 	 * Computes the map of chunk sections to rebuild to display in-world the new light values.
@@ -51,6 +65,41 @@ public interface DynamicLightSource {
 	 */
 	Long2ObjectMap<ChunkRebuildStatus> getDynamicLightChunksToRebuild(boolean forced);
 
+	/**
+	 * Gathers the closest chunks from the given coordinates which can be brightened by a light of the given luminance.
+	 * <p>
+	 * Out of the 8 closest chunk sections, only those within the effective radius of the light are gathered.
+	 *
+	 * @param x the X-coordinate
+	 * @param y the Y-coordinate
+	 * @param z the Z-coordinate
+	 * @param luminance the luminance of the light
+	 * @param chunkConsumer the consumer of the relevant chunks
+	 * @see DynamicLightingEngine#getEffectiveRadius(int)
+	 */
+	static void gatherClosestChunks(double x, double y, double z, int luminance, LongConsumer chunkConsumer) {
+		// The blocks the light reaches, with an extra block for the neighbours sampled by smooth lighting.
+		double radius = DynamicLightingEngine.getEffectiveRadius(luminance);
+		int minSectionX = SectionPos.blockToSectionCoord(Mth.floor(x - .5 - radius) - 1);
+		int minSectionY = SectionPos.blockToSectionCoord(Mth.floor(y - .5 - radius) - 1);
+		int minSectionZ = SectionPos.blockToSectionCoord(Mth.floor(z - .5 - radius) - 1);
+		int maxSectionX = SectionPos.blockToSectionCoord(Mth.ceil(x - .5 + radius) + 1);
+		int maxSectionY = SectionPos.blockToSectionCoord(Mth.ceil(y - .5 + radius) + 1);
+		int maxSectionZ = SectionPos.blockToSectionCoord(Mth.ceil(z - .5 + radius) + 1);
+
+		gatherClosestChunks(x, y, z, chunk -> {
+			int sectionX = SectionPos.x(chunk);
+			int sectionY = SectionPos.y(chunk);
+			int sectionZ = SectionPos.z(chunk);
+
+			if (sectionX >= minSectionX && sectionX <= maxSectionX
+					&& sectionY >= minSectionY && sectionY <= maxSectionY
+					&& sectionZ >= minSectionZ && sectionZ <= maxSectionZ) {
+				chunkConsumer.accept(chunk);
+			}
+		});
+	}
+
 	/**
 	 * Gathers the closest chunks from the given coordinates.
 	 *
@@ -0,0 +1,232 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine.source;
+
+import dev.lambdaurora.lambdynlights.engine.DynamicLightingEngine;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMaps;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.client.particle.Particle;
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.item.ItemEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Represents the clusters of weak light sources.
+ * <p>
+ * Particles and dropped items tend to come in dense groups, like firefly swarms or piles of dropped glowstone dust.
+ * Such light sources, as long as they are weak, are grouped by kind and by cell into {@link ClusteredDynamicLightSource clusters},
+ * which are the light sources the engine actually tracks.
+ * <p>
+ * The clusters are created and removed as members join and leave them,
+ * and members which moved to another cell or became too bright are moved out of their cluster once per tick.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class DynamicLightSourceClusters {
+	/**
+	 * The maximum luminance of a light source to be clustered.
+	 */
+	public static final int MAX_CLUSTERED_LUMINANCE = 10;
+
+	private final Reference2ObjectOpenHashMap<Class<?>, Long2ObjectOpenHashMap<ClusteredDynamicLightSource>> clusters
+			= new Reference2ObjectOpenHashMap<>();
+	private final Reference2ObjectOpenHashMap<EntityDynamicLightSourceBehavior, ClusteredDynamicLightSource> memberClusters
+			= new Reference2ObjectOpenHashMap<>();
+	private final Consumer<DynamicLightSource> onClusterAdded;
+	private final Consumer<DynamicLightSource> onClusterRemoved;
+	private final List<EntityDynamicLightSourceBehavior> unclustered = new ArrayList<>();
+
+	/**
+	 * @param onClusterAdded the callback to track a new cluster as a light source
+	 * @param onClusterRemoved the callback to stop tracking an empty cluster as a light source
+	 */
+	public DynamicLightSourceClusters(Consumer<DynamicLightSource> onClusterAdded, Consumer<DynamicLightSource> onClusterRemoved) {
+		this.onClusterAdded = onClusterAdded;
+		this.onClusterRemoved = onClusterRemoved;
+	}
+
+	/**
+	 * {@return {@code true} if the given light source can be clustered, or {@code false} otherwise}
+	 *
+	 * @param lightSource the light source
+	 */
+	public static boolean canCluster(DynamicLightSource lightSource) {
+		return (lightSource instanceof Particle || lightSource instanceof ItemEntity)
+				&& lightSource instanceof EntityDynamicLightSourceBehavior behavior
+				&& behavior.getLuminance() <= MAX_CLUSTERED_LUMINANCE;
+	}
+
+	/**
+	 * {@return the number of light sources within clusters}
+	 */
+	public int getMemberCount() {
+		return this.memberClusters.size();
+	}
+
+	/**
+	 * {@return {@code true} if the given light source is within a cluster, or {@code false} otherwise}
+	 *
+	 * @param lightSource the light source
+	 */
+	public boolean contains(DynamicLightSource lightSource) {
+		return lightSource instanceof EntityDynamicLightSourceBehavior behavior && this.memberClusters.containsKey(behavior);
+	}
+
+	/**
+	 * Adds the given light source to its cluster if it can be clustered.
+	 *
+	 * @param lightSource the light source to add
+	 * @return {@code true} if the light source has been added to a cluster, or {@code false} if it cannot be clustered
+	 */
+	public boolean add(DynamicLightSource lightSource) {
+		if (!canCluster(lightSource)) return false;
+
+		var member = (EntityDynamicLightSourceBehavior) lightSource;
+		if (!this.memberClusters.containsKey(member)) {
+			this.join(member, this.getOrCreateCluster(member.getClass(), cellOf(member)));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Removes the given light source from its cluster.
+	 *
+	 * @param lightSource the light source to remove
+	 * @return {@code true} if the light source has been removed from a cluster, or {@code false} if it was not in any
+	 */
+	public boolean remove(DynamicLightSource lightSource) {
+		if (!(lightSource instanceof EntityDynamicLightSourceBehavior member)) return false;
+
+		var cluster = this.memberClusters.remove(member);
+		if (cluster == null) return false;
+
+		this.leave(member, cluster);
+		return true;
+	}
+
+	/**
+	 * Removes the light sources within clusters which match the given filter.
+	 *
+	 * @param filter the removal filter
+	 * @return {@code true} if any light source has been removed, or {@code false} otherwise
+	 */
+	public boolean removeIf(Predicate<DynamicLightSource> filter) {
+		var removed = new ArrayList<EntityDynamicLightSourceBehavior>();
+
+		for (var member : this.memberClusters.keySet()) {
+			if (filter.test(member)) {
+				removed.add(member);
+			}
+		}
+
+		for (var member : removed) {
+			this.remove(member);
+			member.resetDynamicLight();
+		}
+
+		return !removed.isEmpty();
+	}
+
+	/**
+	 * Moves the members which changed cell to their new cluster.
+	 * <p>
+	 * The members which became too bright to be clustered are removed from their cluster and given to the given consumer,
+	 * which tracks them as standalone light sources.
+	 *
+	 * @param unclusteredConsumer the consumer of the members which cannot be clustered anymore
+	 */
+	public void update(Consumer<EntityDynamicLightSourceBehavior> unclusteredConsumer) {
+		var iterator = Reference2ObjectMaps.fastIterator(this.memberClusters);
+
+		while (iterator.hasNext()) {
+			var memberEntry = iterator.next();
+			var member = memberEntry.getKey();
+			var cluster = memberEntry.getValue();
+
+			if (member.getLuminance() > MAX_CLUSTERED_LUMINANCE) {
+				iterator.remove();
+				this.leave(member, cluster);
+				this.unclustered.add(member);
+				continue;
+			}
+
+			long cell = cellOf(member);
+			if (cell != cluster.cell()) {
+				this.leave(member, cluster);
+
+				var newCluster = this.getOrCreateCluster(cluster.kind(), cell);
+				newCluster.members().add(member);
+				memberEntry.setValue(newCluster);
+			}
+		}
+
+		this.unclustered.forEach(unclusteredConsumer);
+		this.unclustered.clear();
+	}
+
+	/**
+	 * Removes every light source from the clusters, the clusters themselves must be removed from the tracked light sources separately.
+	 */
+	public void clear() {
+		this.memberClusters.keySet().forEach(EntityDynamicLightSourceBehavior::resetDynamicLight);
+		this.memberClusters.clear();
+		this.clusters.clear();
+	}
+
+	private void join(EntityDynamicLightSourceBehavior member, ClusteredDynamicLightSource cluster) {
+		cluster.members().add(member);
+		this.memberClusters.put(member, cluster);
+	}
+
+	private void leave(EntityDynamicLightSourceBehavior member, ClusteredDynamicLightSource cluster) {
+		cluster.members().remove(member);
+
+		if (cluster.members().isEmpty()) {
+			var kindClusters = this.clusters.get(cluster.kind());
+			kindClusters.remove(cluster.cell());
+
+			if (kindClusters.isEmpty()) {
+				this.clusters.remove(cluster.kind());
+			}
+
+			this.onClusterRemoved.accept(cluster);
+		}
+	}
+
+	private ClusteredDynamicLightSource getOrCreateCluster(Class<?> kind, long cell) {
+		var kindClusters = this.clusters.computeIfAbsent(kind, k -> new Long2ObjectOpenHashMap<>());
+		var cluster = kindClusters.get(cell);
+
+		if (cluster == null) {
+			cluster = new ClusteredDynamicLightSource(kind, cell);
+			kindClusters.put(cell, cluster);
+			this.onClusterAdded.accept(cluster);
+		}
+
+		return cluster;
+	}
+
+	private static long cellOf(EntityDynamicLightSourceBehavior lightSource) {
+		return BlockPos.asLong(
+				DynamicLightingEngine.positionToCell(Mth.floor(lightSource.getDynamicLightX())),
+				DynamicLightingEngine.positionToCell(Mth.floor(lightSource.getDynamicLightY())),
+				DynamicLightingEngine.positionToCell(Mth.floor(lightSource.getDynamicLightZ()))
+		);
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2025 LambdAurora <email@lambdaurora.dev>
+ *
+ * This file is part of LambDynamicLights.
+ *
+ * Licensed under the Lambda License. For more information,
+ * see the LICENSE file.
+ */
+
+package dev.lambdaurora.lambdynlights.engine.source;
+
+import dev.lambdaurora.lambdynlights.engine.TickMode;
+import org.jspecify.annotations.Nullable;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Represents the registry of the tracked dynamic light sources.
+ * <p>
+ * The light sources are stored densely in an array, and each light source holds its own {@link DynamicLightSource#getDynamicLightSlot() slot}
+ * in it. Looking up, adding and removing a light source are constant time operations which do not hash anything:
+ * a removed light source is replaced by the last light source of the array.
+ * <p>
+ * The registry also remembers which light sources have been added since the last {@link #clearNew()},
+ * as those need a forced refresh of their chunk sections,
+ * and holds the scheduling state of each light source used by the {@link dev.lambdaurora.lambdynlights.engine.TickWheel tick wheel}.
+ * <p>
+ * A light source may only be tracked by a single registry at a time.
+ *
+ * @author LambdAurora
+ * @version 4.10.0
+ * @since 4.10.0
+ */
+public final class DynamicLightSourceRegistry extends AbstractCollection<DynamicLightSource> {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private @Nullable DynamicLightSource[] sources = new DynamicLightSource[INITIAL_CAPACITY];
+	private boolean[] isNew = new boolean[INITIAL_CAPACITY];
+	private int[] dueTicks = new int[INITIAL_CAPACITY];
+	private @Nullable TickMode[] tickModes = new TickMode[INITIAL_CAPACITY];
+	private int size = 0;
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the light source in the given slot.
+	 *
+	 * @param slot the slot, between {@code 0} inclusive and {@link #size()} exclusive
+	 * @return the light source
+	 */
+	public DynamicLightSource get(int slot) {
+		return this.sources[slot];
+	}
+
+	/**
+	 * {@return {@code true} if the light source in the given slot has been added since the last {@link #clearNew()}, or {@code false} otherwise}
+	 *
+	 * @param slot the slot, between {@code 0} inclusive and {@link #size()} exclusive
+	 */
+	public boolean isNew(int slot) {
+		return this.isNew[slot];
+	}
+
+	/**
+	 * Forgets which light sources have been newly added.
+	 */
+	public void clearNew() {
+		Arrays.fill(this.isNew, 0, this.size, false);
+	}
+
+	/**
+	 * {@return the last tick at which the light source in the given slot was due to tick}
+	 *
+	 * @param slot the slot, between {@code 0} inclusive and {@link #size()} exclusive
+	 */
+	public int getDueTick(int slot) {
+		return this.dueTicks[slot];
+	}
+
+	/**
+	 * Sets the last tick at which the light source in the given slot was due to tick.
+	 *
+	 * @param slot the slot, between {@code 0} inclusive and {@link #size()} exclusive
+	 * @param tick the tick
+	 */
+	public void setDueTick(int slot, int tick) {
+		this.dueTicks[slot] = tick;
+	}
+
+	/**
+	 * {@return the tick mode the light source in the given slot was last classified in}
+	 *
+	 * @param slot the slot, between {@code 0} inclusive and {@link #size()} exclusive
+	 */
+	public TickMode getTickMode(int slot) {
+		return this.tickModes[slot];
+	}
+
+	/**
+	 * Sets the tick mode the light source in the given slot is classified in.
+	 *
+	 * @param slot the slot, between {@code 0} inclusive and {@link #size()} exclusive
+	 * @param mode the tick mode
+	 */
+	public void setTickMode(int slot, TickMode mode) {
+		this.tickModes[slot] = mode;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof DynamicLightSource lightSource)) return false;
+
+		int slot = lightSource.getDynamicLightSlot();
+		return slot >= 0 && slot < this.size && this.sources[slot] == lightSource;
+	}
+
+	@Override
+	public boolean add(DynamicLightSource lightSource) {
+		if (this.contains(lightSource)) return false;
+
+		if (this.size == this.sources.length) {
+			int capacity = this.size * 2;
+			this.sources = Arrays.copyOf(this.sources, capacity);
+			this.isNew = Arrays.copyOf(this.isNew, capacity);
+			this.dueTicks = Arrays.copyOf(this.dueTicks, capacity);
+			this.tickModes = Arrays.copyOf(this.tickModes, capacity);
+		}
+
+		this.sources[this.size] = lightSource;
+		this.isNew[this.size] = true;
+		this.dueTicks[this.size] = Integer.MIN_VALUE;
+		this.tickModes[this.size] = TickMode.REAL_TIME;
+		lightSource.setDynamicLightSlot(this.size);
+		this.size++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!this.contains(o)) return false;
+
+		this.removeAt(((DynamicLightSource) o).getDynamicLightSlot());
+		return true;
+	}
+
+	/**
+	 * Removes the light source in the given slot, the last light source takes its slot.
+	 *
+	 * @param slot the slot, between {@code 0} inclusive and {@link #size()} exclusive
+	 * @return the removed light source
+	 */
+	public DynamicLightSource removeAt(int slot) {
+		var lightSource = this.get(slot);
+		int last = --this.size;
+
+		if (slot != last) {
+			var moved = this.get(last);
+			this.sources[slot] = moved;
+			this.isNew[slot] = this.isNew[last];
+			this.dueTicks[slot] = this.dueTicks[last];
+			this.tickModes[slot] = this.tickModes[last];
+			moved.setDynamicLightSlot(slot);
+		}
+
+		this.sources[last] = null;
+		this.isNew[last] = false;
+		this.tickModes[last] = null;
+		lightSource.setDynamicLightSlot(-1);
+		return lightSource;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.get(i).setDynamicLightSlot(-1);
+		}
+
+		Arrays.fill(this.sources, 0, this.size, null);
+		Arrays.fill(this.isNew, 0, this.size, false);
+		Arrays.fill(this.tickModes, 0, this.size, null);
+		this.size = 0;
+	}
+
+	@Override
+	public Iterator<DynamicLightSource> iterator() {
+		return new Iterator<>() {
+			private int cursor = 0;
+			private boolean canRemove = false;
+
+			@Override
+			public boolean hasNext() {
+				return this.cursor < DynamicLightSourceRegistry.this.size;
+			}
+
+			@Override
+			public DynamicLightSource next() {
+				if (!this.hasNext()) throw new NoSuchElementException();
+
+				this.canRemove = true;
+				return DynamicLightSourceRegistry.this.get(this.cursor++);
+			}
+
+			@Override
+			public void remove() {
+				if (!this.canRemove) throw new IllegalStateException();
+
+				this.canRemove = false;
+				// The last light source takes the removed slot, and has yet to be visited.
+				DynamicLightSourceRegistry.this.removeAt(--this.cursor);
+			}
+		};
+	}
+}
@@ -10,19 +10,14 @@
 package dev.lambdaurora.lambdynlights.engine.source;
 
 import dev.lambdaurora.lambdynlights.LambDynLights;
-import dev.lambdaurora.lambdynlights.engine.CellHasher;
-import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupEntityEntry;
-import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupEntry;
-import net.minecraft.util.Mth;
+import dev.lambdaurora.lambdynlights.engine.lookup.SpatialLookupWriter;
 import org.jetbrains.annotations.Range;
 
-import java.util.stream.Stream;
-
 /**
  * Represents an entity-based dynamic light source.
  *
  * @author LambdAurora
- * @version 4.4.0
+ * @version 4.10.0
  * @since 1.0.0
  */
 public interface EntityDynamicLightSource extends DynamicLightSource {
@@ -63,14 +58,11 @@ public interface EntityDynamicLightSource extends DynamicLightSource {
 	void dynamicLightTick();
 
 	@Override
-	default Stream<SpatialLookupEntry> splitIntoDynamicLightEntries(CellHasher cellHasher) {
-		int x = Mth.floor(this.getDynamicLightX());
-		int y = Mth.floor(this.getDynamicLightY());
-		int z = Mth.floor(this.getDynamicLightZ());
-
-		int cellKey = cellHasher.hashAt(x, y, z);
-		SpatialLookupEntry entry = new SpatialLookupEntityEntry(cellKey, this);
+	default void splitIntoDynamicLightEntries(SpatialLookupWriter writer) {
+		int luminance = this.getLuminance();
 
-		return Stream.of(entry);
+		if (luminance > 0) {
+			writer.addEntry(this.getDynamicLightX(), this.getDynamicLightY(), this.getDynamicLightZ(), luminance);
+		}
 	}
 }
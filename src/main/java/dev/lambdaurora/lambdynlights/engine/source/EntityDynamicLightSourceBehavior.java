@@ -22,7 +22,7 @@ import org.jetbrains.annotations.ApiStatus;
  * Represents the behavior of a dynamic light source.
  *
  * @author LambdAurora
- * @version 4.8.0
+ * @version 4.10.0
  * @since 4.0.0
  */
 @ApiStatus.Internal
@@ -76,18 +76,25 @@ public interface EntityDynamicLightSourceBehavior extends EntityDynamicLightSour
 	 */
 	static void tickEntity(Entity entity) {
 		var lightSource = (EntityDynamicLightSourceBehavior) entity;
+		var mod = LambDynLights.get();
 
-		if (!LambDynLights.get().shouldTick(lightSource)) return;
+		if (!mod.shouldTick(lightSource)) return;
 
 		if (entity.isRemoved()) {
 			lightSource.setDynamicLightEnabled(false);
-		} else {
+		} else if (!mod.deferLuminanceEvaluation(lightSource)) {
+			long startTime = mod.getGovernor().isEnabled() ? System.nanoTime() : 0;
+
 			if (DynamicLightingEngine.canLightUp(entity)) {
 				lightSource.dynamicLightTick();
 			} else {
 				lightSource.setLuminance(0);
 			}
 			LambDynLights.updateTracking(lightSource);
+
+			if (startTime != 0) {
+				mod.getGovernor().addLuminanceTime(System.nanoTime() - startTime);
+			}
 		}
 
 		if (entity instanceof Guardian guardian) {
@@ -112,7 +119,7 @@ public interface EntityDynamicLightSourceBehavior extends EntityDynamicLightSour
 		var newPos = new LongOpenHashSet();
 
 		if (luminance > 0) {
-			DynamicLightSource.gatherClosestChunks(x, y, z, newPos::add);
+			DynamicLightSource.gatherClosestChunks(x, y, z, luminance, newPos::add);
 		}
 
 		var result = new Long2ObjectArrayMap<ChunkRebuildStatus>(8);
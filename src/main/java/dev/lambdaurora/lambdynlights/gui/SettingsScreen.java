@@ -46,7 +46,7 @@ import java.util.stream.Collectors;
  * Represents the settings screen of LambDynamicLights.
  *
  * @author LambdAurora
- * @version 4.9.0
+ * @version 4.10.0
  * @since 1.0.0
  */
 public class SettingsScreen extends SpruceScreen {
@@ -244,6 +244,11 @@ public class SettingsScreen extends SpruceScreen {
 		list.addSingleOptionEntry(this.config.slowTickingOption);
 		list.addSingleOptionEntry(this.config.slowerTickingOption);
 		list.addSingleOptionEntry(this.config.getBackgroundAdaptiveTicking().getOption());
+		list.addSingleOptionEntry(this.config.getCulledAdaptiveTicking().getOption());
+		list.addSingleOptionEntry(this.config.getSectionLightGrid().getOption());
+		list.addSingleOptionEntry(this.config.getPipelinedBuild().getOption());
+		list.addSingleOptionEntry(this.config.getParallelLuminance().getOption());
+		list.addSingleOptionEntry(this.config.lightingBackendOption);
 		context.addInnerWidget(list);
 	}
 
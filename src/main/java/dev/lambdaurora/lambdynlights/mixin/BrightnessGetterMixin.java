@@ -12,6 +12,7 @@ package dev.lambdaurora.lambdynlights.mixin;
 import dev.lambdaurora.lambdynlights.LambDynLights;
 import net.minecraft.client.renderer.LevelRenderer;
 import net.minecraft.core.BlockPos;
+import net.minecraft.util.LightCoordsUtil;
 import net.minecraft.world.level.BlockAndLightGetter;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
@@ -22,6 +23,9 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
  * Injects the dynamic lighting into the default brightness getter.
  * <p>
  * Injecting into the default brightness getter allows to benefit from brightness caching in the Vanilla renderer.
+ * <p>
+ * Most queries happen in chunk sections which no dynamic light can reach, or where the Vanilla block light
+ * is already brighter than any dynamic light there, in which case the Vanilla value is returned right away.
  *
  * @author LambdAurora
  * @version 4.10.0
@@ -41,7 +45,15 @@ public interface BrightnessGetterMixin {
 			BlockAndLightGetter level, BlockPos pos,
 			CallbackInfoReturnable<Integer> cir
 	) {
-		if (!level.getBlockState(pos).isSolidRender() && LambDynLights.get().config.getDynamicLightsMode().isEnabled())
-			cir.setReturnValue(LambDynLights.get().getLightmapWithDynamicLight(level, pos, cir.getReturnValue()));
+		var mod = LambDynLights.get();
+		if (!mod.config.getDynamicLightsMode().isEnabled())
+			return;
+
+		int lightmap = cir.getReturnValue();
+		if (mod.engine.getMaxDynamicLightLevel(pos) <= LightCoordsUtil.block(lightmap))
+			return;
+
+		if (!level.getBlockState(pos).isSolidRender())
+			cir.setReturnValue(mod.getLightmapWithDynamicLight(level, pos, lightmap));
 	}
 }
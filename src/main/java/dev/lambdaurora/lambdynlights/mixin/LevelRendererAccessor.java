@@ -9,15 +9,18 @@
 
 package dev.lambdaurora.lambdynlights.mixin;
 
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.client.renderer.LevelRenderer;
+import net.minecraft.client.renderer.chunk.SectionRenderDispatcher;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
 import org.spongepowered.asm.mixin.gen.Invoker;
 
 /**
  * Represents an accessor for WorldRenderer.
  *
  * @author LambdAurora
- * @version 4.2.3
+ * @version 4.10.0
  * @since 1.0.0
  */
 @Mixin(LevelRenderer.class)
@@ -32,4 +35,10 @@ public interface LevelRendererAccessor {
 	 */
 	@Invoker("setSectionDirty")
 	void lambdynlights$scheduleChunkRebuild(int x, int y, int z, boolean important);
+
+	/**
+	 * {@return the chunk sections visible on the last rendered frame}
+	 */
+	@Accessor("visibleSections")
+	ObjectArrayList<SectionRenderDispatcher.RenderSection> lambdynlights$getVisibleSections();
 }
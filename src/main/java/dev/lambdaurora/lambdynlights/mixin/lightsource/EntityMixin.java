@@ -10,8 +10,10 @@
 package dev.lambdaurora.lambdynlights.mixin.lightsource;
 
 import dev.lambdaurora.lambdynlights.LambDynLights;
+import dev.lambdaurora.lambdynlights.accessor.LuminanceCacheHolder;
 import dev.lambdaurora.lambdynlights.engine.source.EntityDynamicLightSourceBehavior;
 import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.network.syncher.EntityDataAccessor;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.level.Level;
 import org.spongepowered.asm.mixin.Mixin;
@@ -22,10 +24,13 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 @Mixin(Entity.class)
-public abstract class EntityMixin implements EntityDynamicLightSourceBehavior {
+public abstract class EntityMixin implements EntityDynamicLightSourceBehavior, LuminanceCacheHolder {
 	@Shadow
 	private int id;
 
+	@Shadow
+	private int remainingFireTicks;
+
 	@Shadow
 	public abstract Level level();
 
@@ -50,6 +55,15 @@ public abstract class EntityMixin implements EntityDynamicLightSourceBehavior {
 	@Shadow
 	public abstract boolean isInvisible();
 
+	@Shadow
+	public abstract boolean isInWater();
+
+	@Shadow
+	public abstract boolean isUnderWater();
+
+	@Shadow
+	public abstract boolean isInLava();
+
 	// Must be private, DO NOT TRUST INHERITANCE WHEN USING @UNIQUE
 	@Unique
 	private int lambdynlights$luminance = 0;
@@ -63,6 +77,16 @@ public abstract class EntityMixin implements EntityDynamicLightSourceBehavior {
 	private double lambdynlights$prevZ;
 	@Unique
 	private LongSet lambdynlights$trackedLitChunkPos = LongSet.of();
+	@Unique
+	private int lambdynlights$slot = -1;
+	@Unique
+	private int lambdynlights$cachedLuminance = 0;
+	@Unique
+	private int lambdynlights$cachedLuminanceGeneration = -1;
+	@Unique
+	private int lambdynlights$cachedLuminanceRefreshTick;
+	@Unique
+	private int lambdynlights$cachedFluidState;
 
 	@Inject(method = "remove", at = @At("TAIL"))
 	public void onRemove(CallbackInfo ci) {
@@ -70,11 +94,34 @@ public abstract class EntityMixin implements EntityDynamicLightSourceBehavior {
 			this.setDynamicLightEnabled(false);
 	}
 
+	@Inject(method = "onSyncedDataUpdated(Lnet/minecraft/network/syncher/EntityDataAccessor;)V", at = @At("HEAD"))
+	private void lambdynlights$onSyncedDataUpdated(EntityDataAccessor<?> accessor, CallbackInfo ci) {
+		// The synced data holds the fire, glowing and invisibility flags, and the items displayed by the entity.
+		this.lambdynlights$invalidateLuminance();
+	}
+
+	@Inject(method = "setRemainingFireTicks", at = @At("HEAD"))
+	private void lambdynlights$onSetRemainingFireTicks(int remainingFireTicks, CallbackInfo ci) {
+		if ((this.remainingFireTicks > 0) != (remainingFireTicks > 0)) {
+			this.lambdynlights$invalidateLuminance();
+		}
+	}
+
 	@Override
 	public int getDynamicLightId() {
 		return this.id;
 	}
 
+	@Override
+	public int getDynamicLightSlot() {
+		return this.lambdynlights$slot;
+	}
+
+	@Override
+	public void setDynamicLightSlot(int slot) {
+		this.lambdynlights$slot = slot;
+	}
+
 	@Override
 	public double getDynamicLightX() {
 		return this.getX();
@@ -124,12 +171,57 @@ public abstract class EntityMixin implements EntityDynamicLightSourceBehavior {
 		} else {
 			this.lambdynlights$luminance = this.isOnFire() ? 15 : 0;
 
-			int luminance = LambDynLights.getLuminanceFrom((Entity) (Object) this);
+			int luminance = this.lambdynlights$getCachedLuminance();
 			if (luminance > this.lambdynlights$luminance)
 				this.lambdynlights$luminance = luminance;
 		}
 	}
 
+	@Override
+	public final int lambdynlights$getCachedLuminance() {
+		if (this.lambdynlights$isLuminanceStale()) {
+			this.lambdynlights$setCachedLuminance(this.lambdynlights$computeLuminance());
+		}
+
+		return this.lambdynlights$cachedLuminance;
+	}
+
+	@Override
+	public final boolean lambdynlights$isLuminanceStale() {
+		var mod = LambDynLights.get();
+		return this.lambdynlights$cachedLuminanceGeneration != mod.getLuminanceGeneration()
+				|| this.lambdynlights$cachedFluidState != this.lambdynlights$getFluidState()
+				|| mod.getTick() - this.lambdynlights$cachedLuminanceRefreshTick >= 0;
+	}
+
+	@Override
+	public final void lambdynlights$setCachedLuminance(int luminance) {
+		var mod = LambDynLights.get();
+		int tick = mod.getTick();
+
+		this.lambdynlights$cachedLuminance = luminance;
+		this.lambdynlights$cachedLuminanceGeneration = mod.getLuminanceGeneration();
+		this.lambdynlights$cachedFluidState = this.lambdynlights$getFluidState();
+		// The refreshes are spread across ticks using the identifier, as the entities may be invalidated all at once.
+		this.lambdynlights$cachedLuminanceRefreshTick = tick + LambDynLights.LUMINANCE_REFRESH_INTERVAL
+				- Math.floorMod(tick + this.id, LambDynLights.LUMINANCE_REFRESH_INTERVAL);
+	}
+
+	@Unique
+	private int lambdynlights$getFluidState() {
+		return (this.isInWater() ? 1 : 0) | (this.isUnderWater() ? 2 : 0) | (this.isInLava() ? 4 : 0);
+	}
+
+	@Override
+	public int lambdynlights$computeLuminance() {
+		return LambDynLights.getLuminanceFrom((Entity) (Object) this);
+	}
+
+	@Override
+	public final void lambdynlights$invalidateLuminance() {
+		this.lambdynlights$cachedLuminanceGeneration = -1;
+	}
+
 	@Override
 	public final int getLuminance() {
 		return this.lambdynlights$luminance;
@@ -13,9 +13,17 @@ import dev.lambdaurora.lambdynlights.LambDynLights;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 @Mixin(LivingEntity.class)
 public abstract class LivingEntityMixin extends EntityMixin {
+	@Inject(method = "onEquipItem", at = @At("HEAD"))
+	private void lambdynlights$onEquipItem(CallbackInfo ci) {
+		this.lambdynlights$invalidateLuminance();
+	}
+
 	@Override
 	public void dynamicLightTick() {
 		if (this.isInvisible()) {
@@ -26,11 +34,15 @@ public abstract class LivingEntityMixin extends EntityMixin {
 		if (this.isOnFire() || (LambDynLights.get().config.getGlowingEffectLighting().get() && this.isCurrentlyGlowing())) {
 			this.setLuminance(15);
 		} else {
-			this.setLuminance(LambDynLights.getLivingEntityLuminanceFromItems((LivingEntity) (Object) this));
+			this.setLuminance(this.lambdynlights$getCachedLuminance());
 		}
+	}
 
-		int luminance = LambDynLights.getLuminanceFrom((Entity) (Object) this);
-		if (luminance > this.getLuminance())
-			this.setLuminance(luminance);
+	@Override
+	public int lambdynlights$computeLuminance() {
+		return Math.max(
+				LambDynLights.getLivingEntityLuminanceFromItems((LivingEntity) (Object) this),
+				LambDynLights.getLuminanceFrom((Entity) (Object) this)
+		);
 	}
 }
@@ -48,12 +48,24 @@ public class ParticleMixin implements EntityDynamicLightSourceBehavior {
 	private double lambdynlights$prevZ;
 	@Unique
 	private LongSet lambdynlights$trackedLitChunkPos = LongSet.of();
+	@Unique
+	private int lambdynlights$slot = -1;
 
 	@Override
 	public int getDynamicLightId() {
 		return this.lambdynlights$id;
 	}
 
+	@Override
+	public int getDynamicLightSlot() {
+		return this.lambdynlights$slot;
+	}
+
+	@Override
+	public void setDynamicLightSlot(int slot) {
+		this.lambdynlights$slot = slot;
+	}
+
 	@Override
 	public double getDynamicLightX() {
 		return this.x;
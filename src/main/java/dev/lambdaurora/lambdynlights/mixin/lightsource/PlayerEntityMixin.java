@@ -10,6 +10,7 @@
 package dev.lambdaurora.lambdynlights.mixin.lightsource;
 
 import dev.lambdaurora.lambdynlights.engine.source.EntityDynamicLightSource;
+import net.minecraft.client.Minecraft;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
 import org.spongepowered.asm.mixin.Mixin;
@@ -29,6 +30,11 @@ public abstract class PlayerEntityMixin extends LivingEntityMixin implements Ent
 		if (this.isSpectator()) {
 			this.setLuminance(0);
 		} else {
+			// The inventory of the local player changes without equipment events, and only a single entity is concerned.
+			if ((Object) this == Minecraft.getInstance().player) {
+				this.lambdynlights$invalidateLuminance();
+			}
+
 			super.dynamicLightTick();
 		}
 
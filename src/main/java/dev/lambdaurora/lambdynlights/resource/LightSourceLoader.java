@@ -41,7 +41,7 @@ import java.util.stream.Collectors;
  *
  * @param <L> the type of light source to load
  * @author LambdAurora
- * @version 4.6.0
+ * @version 4.10.0
  * @since 4.0.0
  */
 public abstract class LightSourceLoader<L> implements PreparableReloadListener {
@@ -128,6 +128,7 @@ public abstract class LightSourceLoader<L> implements PreparableReloadListener {
 				.collect(Collectors.toCollection(ArrayList::new));
 		this.doApply(registryLookup, lightSources);
 		this.lightSources = lightSources;
+		LambDynLights.get().invalidateLuminance();
 	}
 
 	protected void doApply(HolderLookup.Provider registryLookup, List<L> lightSources) {
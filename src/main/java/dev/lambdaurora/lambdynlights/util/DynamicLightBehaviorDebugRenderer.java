@@ -21,20 +21,20 @@ import net.minecraft.gizmos.Gizmos;
 import net.minecraft.util.debug.DebugValueAccess;
 import net.minecraft.world.phys.AABB;
 
-import java.util.Set;
+import java.util.Collection;
 
 /**
  * Represents a debug renderer for the bounding boxes of {@link DynamicLightBehavior}.
  *
  * @author Akarys
- * @version 4.9.0
+ * @version 4.10.0
  * @since 4.0.0
  */
 @Environment(EnvType.CLIENT)
 public class DynamicLightBehaviorDebugRenderer extends DynamicLightDebugRenderer {
-	private final Set<DynamicLightSource> lightSourceSetRef;
+	private final Collection<DynamicLightSource> lightSourceSetRef;
 
-	public DynamicLightBehaviorDebugRenderer(LambDynLights mod, Set<DynamicLightSource> lightSourceSetRef) {
+	public DynamicLightBehaviorDebugRenderer(LambDynLights mod, Collection<DynamicLightSource> lightSourceSetRef) {
 		super(mod);
 		this.lightSourceSetRef = lightSourceSetRef;
 	}
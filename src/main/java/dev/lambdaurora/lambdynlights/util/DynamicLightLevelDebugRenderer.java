@@ -15,7 +15,6 @@ import dev.lambdaurora.spruceui.util.ColorUtil;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.client.renderer.culling.Frustum;
-import net.minecraft.core.BlockPos;
 import net.minecraft.gizmos.Gizmos;
 import net.minecraft.gizmos.TextGizmo;
 import net.minecraft.util.Mth;
@@ -26,12 +25,13 @@ import net.minecraft.world.phys.Vec3;
  * Represents a debug renderer for dynamic light levels.
  *
  * @author Akarys
- * @version 4.9.0
+ * @version 4.10.0
  * @since 4.0.0
  */
 @Environment(EnvType.CLIENT)
 public class DynamicLightLevelDebugRenderer extends DynamicLightDebugRenderer {
 	private final DynamicLightingEngine lightingEngine;
+	private float[] levels = new float[0];
 
 	public DynamicLightLevelDebugRenderer(LambDynLights mod) {
 		super(mod);
@@ -53,18 +53,31 @@ public class DynamicLightLevelDebugRenderer extends DynamicLightDebugRenderer {
 		int startX = this.client.player.blockPosition().getX();
 		int startY = this.client.player.blockPosition().getY();
 		int startZ = this.client.player.blockPosition().getZ();
-		var pos = new BlockPos.MutableBlockPos();
 
 		if (lightDisplayRadius > 0) {
-			for (int offsetX = 0; offsetX < lightDisplayRadius * 2 + 1; offsetX++) {
-				for (int offsetY = 0; offsetY < lightDisplayRadius * 2 + 1; offsetY++) {
-					for (int offsetZ = 0; offsetZ < lightDisplayRadius * 2 + 1; offsetZ++) {
+			int size = lightDisplayRadius * 2 + 1;
+
+			if (this.levels.length < size * size * size) {
+				this.levels = new float[size * size * size];
+			}
+
+			// Query the whole displayed box at once.
+			if (!this.lightingEngine.getDynamicLightLevels(
+					startX - lightDisplayRadius, startY - lightDisplayRadius, startZ - lightDisplayRadius,
+					size, size, size,
+					this.levels
+			)) {
+				return;
+			}
+
+			for (int offsetX = 0; offsetX < size; offsetX++) {
+				for (int offsetY = 0; offsetY < size; offsetY++) {
+					for (int offsetZ = 0; offsetZ < size; offsetZ++) {
 						int currentX = startX + offsetX - lightDisplayRadius;
 						int currentY = startY + offsetY - lightDisplayRadius;
 						int currentZ = startZ + offsetZ - lightDisplayRadius;
-						pos.set(currentX, currentY, currentZ);
 
-						double light = this.lightingEngine.getDynamicLightLevel(pos);
+						double light = this.levels[(offsetY * size + offsetZ) * size + offsetX];
 
 						if (light <= 0.05) {
 							continue;